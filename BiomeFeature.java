@@ -2,26 +2,34 @@ import java.util.ArrayList;
 
 /**
  * Simple model of broad biome features for the grid e.g.
- * rivers 
+ * rivers
+ * A feature is not placed in the field itself: each kind of feature
+ * is a kind of Terrain, and this object describes it.
  *
  * @author Oliver Macpherson
  * @version 1
  */
 public class BiomeFeature
 {
-    // instance variables - replace the example below with your own
+    // The classes of species that can move through the feature.
     protected ArrayList<Class> canMoveThrough;
-    protected Field field;
-    protected Location location;
-
+    
     /**
      * Constructor for objects of class BiomeFeatures
      */
-    public BiomeFeature(Field field, Location location)
+    public BiomeFeature()
     {
         // initialise instance variables
         canMoveThrough = new ArrayList<>();
-        this.field = field;
-        this.location = location;
+    }
+    
+    /**
+     * Return whether a class of species can move through the feature.
+     * @param type The class of species.
+     * @return true if it can move through.
+     */
+    public boolean canMoveThrough(Class type)
+    {
+        return canMoveThrough.contains(type);
     }
 }
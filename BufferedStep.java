@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a step of a simulation in two phases over two fields, so that no
+ * species sees the effects of another species' move within the same step.
+ *
+ * In the plan phase every species looks at the current field, which
+ * nobody changes, and records what it wants to do in an Intent. In the
+ * commit phase the intents are carried out one after another into the
+ * next field, in the order of the species list: a species earlier in the
+ * list wins when two want the same location or the same prey. A species
+ * that cannot have the location it wanted stays where it is. The species
+ * asleep at this time of day are copied across where they are, before
+ * any intent is carried out. Afterwards the two fields swap roles.
+ *
+ * The species follow the same rules as in a sequential step, choosing
+ * their prey, births and moves from their own random stream, with these
+ * differences: prey is looked for in the current field, so a species
+ * may find a neighbour that has moved away or been eaten by the time it
+ * commits, and then goes without it; a titan that planned to stop at a
+ * fairy eaten first by another species does not go on to eat the
+ * neighbours after it; and newborns and moves only fail, rather than
+ * going elsewhere, when an earlier species has taken their location.
+ *
+ * As nothing changes while the species plan, the plan phase is split
+ * across threads without locking the field. Each species plans with its
+ * own random stream, keyed by the step and its location (see
+ * SplitRandom.seedFor), so the plans are the same however the species
+ * are shared out between threads.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class BufferedStep
+{
+    // The number of species planned by one task before it is split.
+    private static final int PLANS_PER_TASK = 2048;
+    
+    // The field being filled during the commit phase.
+    private Field next;
+    // The intent of each species in the list, reused from step to step.
+    private List<Intent> intents;
+    // The pool running the plan phase.
+    private ForkJoinPool pool;
+    // The seed of the random streams of the current step.
+    private long stepSeed;
+    
+    /**
+     * Create a double-buffered step for fields of the given size.
+     * @param field The current field of the simulation.
+     * @param threads The number of threads to plan on.
+     */
+    public BufferedStep(Field field, int threads)
+    {
+        if(threads < 1) {
+            threads = 1;
+        }
+        next = new Field(field.getDepth(), field.getWidth(), field.getOccupants(),
+                         field.getTerrain());
+        intents = new ArrayList<>();
+        pool = new ForkJoinPool(threads);
+    }
+    
+    /**
+     * Let every species in the list plan and then commit one step.
+     * Afterwards the list holds the surviving species followed by
+     * the newborns.
+     * @param species The species awake at this time of day.
+     * @param asleep The other species, which stay where they are.
+     * @param current The current field, read by the plan phase.
+     * @param simulation The simulation deciding whether a species acts.
+     * @return The field holding the result of the step. The current field
+     *         is kept as the buffer for the following step.
+     */
+    public Field step(List<Species> species, List<Species> asleep, Field current,
+                      Simulation simulation)
+    {
+        while(intents.size() < species.size()) {
+            intents.add(new Intent());
+        }
+        stepSeed = Randomizer.getRandom().nextLong();
+        pool.invoke(new PlanTask(species, simulation, 0, species.size()));
+    
+        next.clearLocations();
+        next.setWeather(current.getWeather());
+        for(Species s : asleep) {
+            if(s.isAlive()) {
+                s.placeIn(next, s.getLocation());
+            }
+        }
+        List<Species> newborns = new ArrayList<>();
+        for(int i = 0; i < species.size(); i++) {
+            commit(species.get(i), intents.get(i), current, newborns);
+        }
+    
+        List<Species> survivors = new ArrayList<>();
+        for(Species s : species) {
+            if(s.isAlive()) {
+                survivors.add(s);
+            }
+        }
+        species.clear();
+        species.addAll(survivors);
+        species.addAll(newborns);
+    
+        Field result = next;
+        next = current;
+        return result;
+    }
+    
+    /**
+     * Stop the threads of this step. It must not be used afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+    
+    /**
+     * Carry out the intent of one species.
+     * @param s The species.
+     * @param intent What it planned to do.
+     * @param current The field the species planned against.
+     * @param newborns A list to receive newly born species.
+     */
+    private void commit(Species s, Intent intent, Field current, List<Species> newborns)
+    {
+        // It may have been eaten by a species committed earlier.
+        if(!s.isAlive()) {
+            return;
+        }
+        int index = current.indexOf(s.getLocation());
+        if(intent.isIdle()) {
+            s.placeIn(next, next.locationAt(index));
+            return;
+        }
+        if(intent.isDying()) {
+            s.setDead();
+            return;
+        }
+        if(intent.isTogglingInfection()) {
+            s.toggleInfection();
+        }
+    
+        int target = -1;
+        for(int i = 0; i < intent.getEatCount(); i++) {
+            int cell = current.adjacentIndex(index, intent.getEatDirection(i));
+            Object prey = current.getObjectAt(cell);
+            if(prey instanceof Species && ((Species) prey).isAlive()) {
+                s.eat((Species) prey);
+                target = cell;
+            }
+        }
+        for(int mask = intent.getBirthMask(); mask != 0; mask &= mask - 1) {
+            int cell = current.adjacentIndex(index, Integer.numberOfTrailingZeros(mask));
+            if(next.getObjectAt(cell) == null) {
+                newborns.add(s.createYoung(next, next.locationAt(cell)));
+            }
+        }
+        if(target < 0 && intent.getMoveDirection() >= 0) {
+            target = current.adjacentIndex(index, intent.getMoveDirection());
+        }
+    
+        if(target >= 0 && next.getObjectAt(target) == null) {
+            s.placeIn(next, next.locationAt(target));
+        }
+        else if(target < 0 && intent.isMoveNeeded()) {
+            // Overcrowding.
+            s.setDead();
+            return;
+        }
+        else {
+            s.placeIn(next, next.locationAt(index));
+        }
+        if(intent.isDyingAfterwards()) {
+            s.setDead();
+        }
+    }
+    
+    /**
+     * Plans a range of the species list, splitting it between threads
+     * when it is long.
+     */
+    private class PlanTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+    
+        // The species of the simulation.
+        private List<Species> species;
+        // The simulation deciding whether a species acts.
+        private Simulation simulation;
+        // The range of the list to plan.
+        private int from, to;
+    
+        /**
+         * Create a task planning the species from index from up to,
+         * but not including, index to.
+         */
+        public PlanTask(List<Species> species, Simulation simulation, int from, int to)
+        {
+            this.species = species;
+            this.simulation = simulation;
+            this.from = from;
+            this.to = to;
+        }
+    
+        /**
+         * Plan the range, or split it in two.
+         */
+        protected void compute()
+        {
+            if(to - from > PLANS_PER_TASK) {
+                int middle = (from + to) / 2;
+                invokeAll(new PlanTask(species, simulation, from, middle),
+                          new PlanTask(species, simulation, middle, to));
+                return;
+            }
+            SplitRandom stream = new SplitRandom(stepSeed);
+            Randomizer.setThreadRandom(stream);
+            try {
+                for(int i = from; i < to; i++) {
+                    Species next = species.get(i);
+                    Intent intent = intents.get(i);
+                    intent.reset();
+                    if(!next.isAlive()) {
+                        // Eaten while asleep; it is dropped on commit.
+                        continue;
+                    }
+                    int index = next.getField().indexOf(next.getLocation());
+                    stream.setSeed(SplitRandom.seedFor(stepSeed, index));
+                    simulation.planOnce(next, intent);
+                }
+            }
+            finally {
+                Randomizer.setThreadRandom(null);
+            }
+        }
+    }
+}
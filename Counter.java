@@ -50,6 +50,15 @@ public class Counter
         count++;
     }
     
+    /**
+     * Set the current count.
+     * @param count The number of this type that exist.
+     */
+    public void setCount(int count)
+    {
+        this.count = count;
+    }
+    
     /**
      * Reset the current count to zero.
      */
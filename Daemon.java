@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -35,8 +34,6 @@ public class Daemon extends Species
     private static final int GRENDLE_FOOD_VALUE = 20;
     //The maximum food daemon can consume before being "full"
     private static final int MAX_HUNGER = 50;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
     //boolean flag to determine if this species is nocturnal or not
     //This species is not nocturnal.
     private static final boolean isNocturnal = false;
@@ -61,6 +58,7 @@ public class Daemon extends Species
     public Daemon(boolean randomAge, Field field, Location location)
     {
         super(field, location, isNocturnal);
+        Random rand = Randomizer.getRandom();
         this.isFemale = isFemale;
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
@@ -89,7 +87,7 @@ public class Daemon extends Species
             Location newLocation = findFood();
             if(newLocation == null) { 
                 // No food found - try to move to a free location.
-                newLocation = getField().freeAdjacentLocation(getLocation());
+                newLocation = freeAdjacentLocation();
             }
             // See if it was possible to move.
             if(newLocation != null) {
@@ -102,6 +100,35 @@ public class Daemon extends Species
         }
     }
 
+    /**
+     * Plan the daemon's step without changing the field: it ages, gets
+     * hungrier, may breed, eats every adjacent species it can and moves.
+     * @param intent The intent to record the plans in.
+     */
+    public void plan(Intent intent)
+    {
+        age++;
+        foodLevel--;
+        if(age > MAX_AGE || foodLevel <= 0) {
+            intent.die();
+            return;
+        }
+        int free = planBirths(intent, breed());
+        planFood(intent);
+        planMove(intent, free);
+    }
+    
+    /**
+     * Create a newly born daemon.
+     * @param field The field the new daemon lives in.
+     * @param location The location of the new daemon.
+     * @return The new daemon.
+     */
+    protected Species createYoung(Field field, Location location)
+    {
+        return new Daemon(false, field, location);
+    }
+
     /**
      * Increase the age. This could result in the daemon's death.
      */
@@ -133,68 +160,67 @@ public class Daemon extends Species
     private Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
         Location foodLocation = null;
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object species = field.getObjectAt(where);
-            if(species instanceof Fairy) {
-                Fairy fairy = (Fairy) species;
-                if(fairy.isAlive()) { 
-                    fairy.setDead();
-                    if(foodLevel+FAIRY_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += FAIRY_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
-            }
-            else if(species instanceof Faegrass) {
-                Faegrass faegrass = (Faegrass) species;
-                if(faegrass.isAlive()) { 
-                    faegrass.setDead();
-                    if(foodLevel+FAEGRASS_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += FAEGRASS_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
-            }
-            else if(species instanceof Gnome) {
-                Gnome gnome = (Gnome) species;
-                if(gnome.isAlive()) { 
-                    gnome.setDead();
-                    if(foodLevel+GNOME_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += GNOME_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
-            }
-            else if(species instanceof Grendle) {
-                Grendle grendle = (Grendle) species;
-                if(grendle.isAlive()) { 
-                    grendle.setDead();
-                    if(foodLevel+GRENDLE_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += GRENDLE_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object species = field.getNeighbourAt(location, adjacent, i);
+            if(canEat(species) && canEnter(field.neighbourLocation(location, adjacent, i))) {
+                eat((Species) species);
+                foodLocation = field.neighbourLocation(location, adjacent, i);
             }
         }
         return foodLocation;
     }
     
+    /**
+     * Check whether this daemon eats the given species.
+     * @param other The species to check.
+     * @return true if it is alive and food for a daemon.
+     */
+    protected boolean canEat(Object other)
+    {
+        return (other instanceof Fairy ||
+                other instanceof Faegrass ||
+                other instanceof Gnome ||
+                other instanceof Grendle) && ((Species) other).isAlive();
+    }
+    
+    /**
+     * Eat the given species.
+     * @param prey The species to eat, which must be alive.
+     */
+    protected void eat(Species prey)
+    {
+        prey.setDead();
+        if(prey instanceof Fairy) {
+            gainFood(FAIRY_FOOD_VALUE);
+        }
+        else if(prey instanceof Faegrass) {
+            gainFood(FAEGRASS_FOOD_VALUE);
+        }
+        else if(prey instanceof Gnome) {
+            gainFood(GNOME_FOOD_VALUE);
+        }
+        else if(prey instanceof Grendle) {
+            gainFood(GRENDLE_FOOD_VALUE);
+        }
+    }
+    
+    /**
+     * Increase the food level, up to the maximum.
+     * @param foodValue The food value of the species eaten.
+     */
+    private void gainFood(int foodValue)
+    {
+        if(foodLevel+foodValue <= MAX_HUNGER) {
+            foodLevel += foodValue;
+        }
+        else {
+            foodLevel = MAX_HUNGER;
+        }
+    }
+    
     /**
      * Check whether or not this daemon is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -203,14 +229,16 @@ public class Daemon extends Species
     private void giveBirth(List<Species> newDaemons)
     {
         // New daemons are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Get a mask of the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        Location location = getLocation();
+        int free = freeNeighbourMask(location);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Daemon young = new Daemon(false, field, loc);
-            newDaemons.add(young);
+        for(int b = 0; b < births && free != 0; b++) {
+            int direction = field.randomDirection(free);
+            free &= ~(1 << direction);
+            Location loc = field.adjacentLocation(location, direction);
+            newDaemons.add(createYoung(field, loc));
         }
     }
         
@@ -221,6 +249,7 @@ public class Daemon extends Species
      */
     private int breed()
     {
+        Random rand = Randomizer.getRandom();
         int births = 0;
         if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
             births = rand.nextInt(MAX_LITTER_SIZE) + 1;
@@ -242,11 +271,10 @@ public class Daemon extends Species
     private boolean hasMate()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object animal = field.getNeighbourAt(location, adjacent, i);
             if(animal instanceof Daemon) {
                 Daemon daemon = (Daemon) animal;
                 if(daemon.gender()!=this.gender()) {
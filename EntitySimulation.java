@@ -0,0 +1,496 @@
+import java.util.Random;
+
+/**
+ * A headless simulation for very large fields, keeping its species in an
+ * EntityStore rather than as Species objects. The behaviour of each kind
+ * of species is reimplemented as systems: passes over every entity that
+ * each handle one part of a step (ageing, hunger, breeding, infection,
+ * feeding, moving), reading the characteristics of each type from the
+ * tables below instead of from the constants of its class.
+ *
+ * The rules are those of the Species classes, the time of day and the
+ * weather work as in Simulation, and the field is populated with the same
+ * probabilities. As every system runs over all entities before the next
+ * one starts, all births of a step happen before any meal, and all meals
+ * before any move; the results are therefore close to, but not the same
+ * as, those of Simulation. Rivers are not modelled.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class EntitySimulation
+{
+    // The entity types, in the order the field is populated.
+    public static final int GRENDLE = 0;
+    public static final int FAIRY = 1;
+    public static final int DAEMON = 2;
+    public static final int FAEGRASS = 3;
+    public static final int UNICORN = 4;
+    public static final int TITAN = 5;
+    public static final int GNOME = 6;
+    private static final String[] NAMES =
+        {"Grendle", "Fairy", "Daemon", "Faegrass", "Unicorn", "Titan", "Gnome"};
+    
+    // Characteristics of each type, in the order above, copied from the
+    // species classes.
+    // The probability that the type will be created in any given location.
+    private static final double[] CREATION_PROBABILITY = {0.07, 0.18, 0.07, 0.1, 0.18, 0.05, 0.1};
+    // The age at which it can start to breed.
+    private static final int[] BREEDING_AGE = {14, 1, 14, 0, 10, 10, 10};
+    // The age to which it can live.
+    private static final int[] MAX_AGE = {275, 40, 275, 2, 500, 300, 200};
+    // The likelihood of it breeding.
+    private static final double[] BREEDING_PROBABILITY = {0.15, 0.85, 0.03, 0.4, 0.8, 0.02, 0.25};
+    // The maximum number of births.
+    private static final int[] MAX_LITTER_SIZE = {4, 4, 4, 100, 3, 2, 6};
+    // Whether it acts at night rather than by day.
+    private static final boolean[] NOCTURNAL = {true, false, false, false, false, false, true};
+    // Whether it needs a mate of the opposite sex next to it to breed,
+    // and whether it moves.
+    private static final boolean[] NEEDS_MATE = {true, true, true, false, true, true, true};
+    private static final boolean[] MOVES = {true, true, true, false, true, true, true};
+    // Whether its young are born with a random age.
+    private static final boolean[] YOUNG_RANDOM_AGE = {true, true, false, false, false, false, true};
+    // The probability of a fairy, a young or an animal eating an infected
+    // fairy becoming infected.
+    private static final double[] DISEASE_PROBABILITY = {0.9, 0.1, 0, 0, 0, 0.8, 0};
+    // The food level it can reach, 0 if it does not eat.
+    private static final int[] MAX_HUNGER = {70, 0, 50, 0, 150, 100, 80};
+    // The food level of its young.
+    private static final int[] YOUNG_FOOD_LEVEL = {56, 0, 57, 0, 30, 18, 20};
+    // The food it loses per step, while healthy and after catching the
+    // disease from its food.
+    private static final int[] HUNGER_LOSS = {1, 0, 1, 0, 2, 1, 1};
+    private static final int[] INFECTED_HUNGER_LOSS = {7, 0, 1, 0, 2, 3, 1};
+    // The food value of each type (columns) to each type (rows).
+    private static final int[][] FOOD_VALUE = {
+        {0, 25, 20, 0, 25, 0, 0},
+        {0, 0, 0, 0, 0, 0, 0},
+        {20, 20, 0, 12, 0, 0, 20},
+        {0, 0, 0, 0, 0, 0, 0},
+        {0, 0, 0, 30, 0, 0, 0},
+        {20, 15, 0, 15, 25, 0, 17},
+        {0, 0, 0, 20, 0, 0, 0},
+    };
+    // Whether it stops eating once it has eaten a fairy.
+    private static final boolean[] FAIRY_IS_MEAL = {false, false, false, false, false, true, false};
+    
+    // The chances of the weather changing and of dying in it, as in
+    // Simulation.
+    private static final double RAIN_PROBABILITY = 0.02;
+    private static final double SNOW_PROBABILITY = 0.01;
+    private static final double SUN_PROBABILITY = 0.75;
+    private static final double WEATHER_DEATH_CHANCE = 0.01;
+    
+    // The entities.
+    private EntityStore store;
+    // The current step of the simulation.
+    private int step;
+    // The weather and the time of day.
+    private Weather weather;
+    private Time time;
+    // Whether each entity acts in the current step.
+    private boolean[] acting;
+    // Where each entity last found food in the current step, or -1.
+    private int[] foodLocation;
+    // Whether the weather is sampled in bulk, as in Simulation, and the
+    // samplers deciding who sits the step out and who dies of the weather.
+    private boolean bulkSampling;
+    private SkipSampler sittingOut;
+    private SkipSampler weatherDeaths;
+    
+    /**
+     * Create a populated simulation of the given size.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     */
+    public EntitySimulation(int depth, int width)
+    {
+        store = new EntityStore(depth, width, NAMES.length);
+        weather = new Weather();
+        time = new Time();
+        acting = new boolean[0];
+        foodLocation = new int[0];
+        sittingOut = new SkipSampler();
+        weatherDeaths = new SkipSampler();
+        populate();
+    }
+    
+    /**
+     * Run the simulation for the given number of steps, stopping early
+     * if it ceases to be viable.
+     * @param numSteps The number of steps to run for.
+     */
+    public void simulate(int numSteps)
+    {
+        for(int n = 1; n <= numSteps && isViable(); n++) {
+            simulateOneStep();
+        }
+    }
+    
+    /**
+     * Run the simulation for a single step. Entities born during the
+     * step first act in the next one.
+     */
+    public void simulateOneStep()
+    {
+        step++;
+        Random rand = Randomizer.getRandom();
+        if(step % 2 == 0) {
+            time.toggleDayAndNight();
+        }
+        if(rand.nextDouble() <= RAIN_PROBABILITY) {
+            weather.toggleRain();
+        }
+        else if(rand.nextDouble() <= SNOW_PROBABILITY) {
+            weather.toggleSnow();
+        }
+        else if(rand.nextDouble() <= SUN_PROBABILITY) {
+            weather.toggleSun();
+        }
+    
+        int count = store.size();
+        if(acting.length < count) {
+            acting = new boolean[count * 2];
+            foodLocation = new int[count * 2];
+        }
+        chooseActing(count);
+        ageing(count);
+        hunger(count);
+        breeding(count);
+        infection(count);
+        feeding(count);
+        moving(count);
+        weatherDeaths(count);
+        store.compact();
+    }
+
+    /**
+     * Choose whether the weather is sampled in bulk, drawing only for
+     * the entities that sit out a step or die of the weather, as
+     * Simulation.setBulkSampling does.
+     * @param bulk true to sample in bulk.
+     */
+    public void setBulkSampling(boolean bulk)
+    {
+        bulkSampling = bulk;
+    }
+
+    /**
+     * Determine whether the simulation is still viable.
+     * @return true If there is more than one type of entity alive.
+     */
+    public boolean isViable()
+    {
+        int types = 0;
+        for(int type = 0; type < NAMES.length; type++) {
+            if(store.getCount(type) > 0) {
+                types++;
+            }
+        }
+        return types > 1;
+    }
+    
+    /**
+     * @return A description of the number of each type alive.
+     */
+    public String getPopulationDetails()
+    {
+        StringBuffer buffer = new StringBuffer();
+        for(int type = 0; type < NAMES.length; type++) {
+            buffer.append(NAMES[type]);
+            buffer.append(": ");
+            buffer.append(store.getCount(type));
+            buffer.append(' ');
+        }
+        return buffer.toString();
+    }
+    
+    /**
+     * @return The current step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+    
+    /**
+     * @return The entities of the simulation.
+     */
+    public EntityStore getStore()
+    {
+        return store;
+    }
+    
+    /**
+     * Randomly populate the field, as Simulation does.
+     */
+    private void populate()
+    {
+        Random rand = Randomizer.getRandom();
+        for(int index = 0; index < store.getDepth() * store.getWidth(); index++) {
+            for(int type = 0; type < NAMES.length; type++) {
+                if(rand.nextDouble() <= CREATION_PROBABILITY[type]) {
+                    create(type, index, true);
+                    break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Create an entity, drawing its sex and, if asked, its age and food
+     * level as the constructors of the species classes do.
+     * @param type The type of the entity.
+     * @param index The index of its location, which must be empty.
+     * @param randomAge Whether it has a random age and food level.
+     * @return The id of the entity.
+     */
+    private int create(int type, int index, boolean randomAge)
+    {
+        Random rand = Randomizer.getRandom();
+        boolean female = rand.nextInt(2) == 0;
+        int age = 0;
+        int food = YOUNG_FOOD_LEVEL[type];
+        if(randomAge) {
+            age = rand.nextInt(MAX_AGE[type]);
+            if(food > 0) {
+                food = rand.nextInt(food);
+            }
+        }
+        return store.add(type, index, age, food, HUNGER_LOSS[type], female);
+    }
+    
+    /**
+     * Decide which entities act this step, given the time of day and the
+     * weather.
+     */
+    private void chooseActing(int count)
+    {
+        Random rand = Randomizer.getRandom();
+        double chance = weather.getState().getActChance();
+        boolean bulk = bulkSampling && chance < 1;
+        if(bulk) {
+            sittingOut.start(1 - chance, rand);
+        }
+        boolean day = time.getIsDay();
+        for(int id = 0; id < count; id++) {
+            boolean awake = NOCTURNAL[store.getType(id)] != day;
+            if(bulk) {
+                acting[id] = awake && !sittingOut.next(rand);
+            }
+            else {
+                acting[id] = awake && chance > 0 && (chance == 1 || rand.nextDouble() <= chance);
+            }
+            foodLocation[id] = -1;
+        }
+    }
+    
+    /**
+     * Every acting entity gets older, and may die of old age.
+     */
+    private void ageing(int count)
+    {
+        for(int id = 0; id < count; id++) {
+            if(acting[id] && store.isAlive(id)) {
+                int age = store.getAge(id) + 1;
+                store.setAge(id, age);
+                if(age > MAX_AGE[store.getType(id)]) {
+                    store.kill(id);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Every acting entity that eats gets hungrier, and may starve.
+     */
+    private void hunger(int count)
+    {
+        for(int id = 0; id < count; id++) {
+            if(acting[id] && store.isAlive(id) && MAX_HUNGER[store.getType(id)] > 0) {
+                int food = store.getFoodLevel(id) - store.getHungerLoss(id);
+                store.setFoodLevel(id, food);
+                if(food <= 0) {
+                    store.kill(id);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Every acting entity old enough and with a mate may give birth into
+     * the empty locations around it.
+     */
+    private void breeding(int count)
+    {
+        Random rand = Randomizer.getRandom();
+        for(int id = 0; id < count; id++) {
+            if(!acting[id] || !store.isAlive(id)) {
+                continue;
+            }
+            int type = store.getType(id);
+            if(NEEDS_MATE[type] && (store.getAge(id) < BREEDING_AGE[type] || !hasMate(id))) {
+                continue;
+            }
+            if(rand.nextDouble() <= BREEDING_PROBABILITY[type]) {
+                int births = rand.nextInt(MAX_LITTER_SIZE[type]) + 1;
+                int index = store.getLocation(id);
+                int free = store.freeNeighbourMask(index);
+                for(int b = 0; b < births && free != 0; b++) {
+                    int direction = randomDirection(free, rand);
+                    free &= ~(1 << direction);
+                    int young = create(type, store.adjacentIndex(index, direction),
+                                       YOUNG_RANDOM_AGE[type]);
+                    if(DISEASE_PROBABILITY[type] > 0 && rand.nextDouble() <= DISEASE_PROBABILITY[type]) {
+                        store.setInfected(young, true);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Every acting fairy may catch, or recover from, the disease.
+     */
+    private void infection(int count)
+    {
+        Random rand = Randomizer.getRandom();
+        for(int id = 0; id < count; id++) {
+            if(acting[id] && store.isAlive(id) && store.getType(id) == FAIRY
+                    && rand.nextDouble() <= DISEASE_PROBABILITY[FAIRY]) {
+                store.setInfected(id, !store.isInfected(id));
+            }
+        }
+    }
+    
+    /**
+     * Every acting entity that eats eats the food around it, and may
+     * catch the disease from an infected fairy.
+     */
+    private void feeding(int count)
+    {
+        Random rand = Randomizer.getRandom();
+        for(int id = 0; id < count; id++) {
+            if(!acting[id] || !store.isAlive(id) || MAX_HUNGER[store.getType(id)] == 0) {
+                continue;
+            }
+            int type = store.getType(id);
+            int index = store.getLocation(id);
+            int neighbours = store.neighbourMask(index);
+            // Look around starting from a random direction.
+            int start = rand.nextInt(8);
+            for(int k = 0; k < 8; k++) {
+                int direction = (start + k) & 7;
+                if((neighbours & (1 << direction)) == 0) {
+                    continue;
+                }
+                int cell = store.adjacentIndex(index, direction);
+                int prey = store.entityAt(cell);
+                if(prey == EntityStore.EMPTY || FOOD_VALUE[type][store.getType(prey)] == 0) {
+                    continue;
+                }
+                int preyType = store.getType(prey);
+                boolean preyInfected = store.isInfected(prey);
+                store.kill(prey);
+                int food = store.getFoodLevel(id) + FOOD_VALUE[type][preyType];
+                store.setFoodLevel(id, Math.min(food, MAX_HUNGER[type]));
+                foodLocation[id] = cell;
+                if(preyType == FAIRY && preyInfected && DISEASE_PROBABILITY[type] > 0
+                        && rand.nextDouble() <= DISEASE_PROBABILITY[type]) {
+                    store.setInfected(id, !store.isInfected(id));
+                    store.setHungerLoss(id, INFECTED_HUNGER_LOSS[type]);
+                }
+                if(preyType == FAIRY && FAIRY_IS_MEAL[type]) {
+                    break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Every acting entity that moves moves to where it last found food or
+     * else to an empty location, and dies of overcrowding if it cannot.
+     */
+    private void moving(int count)
+    {
+        Random rand = Randomizer.getRandom();
+        for(int id = 0; id < count; id++) {
+            if(!acting[id] || !store.isAlive(id) || !MOVES[store.getType(id)]) {
+                continue;
+            }
+            int target = foodLocation[id];
+            if(target < 0 || store.entityAt(target) != EntityStore.EMPTY) {
+                int free = store.freeNeighbourMask(store.getLocation(id));
+                target = -1;
+                if(free != 0) {
+                    target = store.adjacentIndex(store.getLocation(id), randomDirection(free, rand));
+                }
+            }
+            if(target >= 0) {
+                store.move(id, target);
+            }
+            else {
+                store.kill(id);
+            }
+        }
+    }
+    
+    /**
+     * In hot weather every acting entity may die.
+     */
+    private void weatherDeaths(int count)
+    {
+        if(!weather.getState().isDamaging()) {
+            return;
+        }
+        Random rand = Randomizer.getRandom();
+        if(bulkSampling) {
+            weatherDeaths.start(WEATHER_DEATH_CHANCE, rand);
+            for(int id = 0; id < count; id++) {
+                if(acting[id] && weatherDeaths.next(rand) && store.isAlive(id)) {
+                    store.kill(id);
+                }
+            }
+            return;
+        }
+        for(int id = 0; id < count; id++) {
+            if(acting[id] && rand.nextDouble() <= WEATHER_DEATH_CHANCE && store.isAlive(id)) {
+                store.kill(id);
+            }
+        }
+    }
+    
+    /**
+     * Return whether an entity has one of its own type and the opposite
+     * sex next to it.
+     */
+    private boolean hasMate(int id)
+    {
+        int type = store.getType(id);
+        int index = store.getLocation(id);
+        for(int mask = store.neighbourMask(index); mask != 0; mask &= mask - 1) {
+            int other = store.entityAt(store.adjacentIndex(index, Integer.numberOfTrailingZeros(mask)));
+            if(other != EntityStore.EMPTY && store.getType(other) == type
+                    && store.isFemale(other) != store.isFemale(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Choose one of the directions of a non-empty mask at random, as
+     * Field.randomDirection does.
+     */
+    private static int randomDirection(int mask, Random rand)
+    {
+        int count = Integer.bitCount(mask);
+        if(count > 1) {
+            for(int k = rand.nextInt(count); k > 0; k--) {
+                mask &= mask - 1;
+            }
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+}
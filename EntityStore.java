@@ -0,0 +1,375 @@
+import java.util.Arrays;
+
+/**
+ * Holds the species of an EntitySimulation as plain numbers instead of
+ * objects. Each species is an entity with an int id, and its type, age,
+ * food level, hunger loss, sex, infection and location are kept in
+ * parallel primitive arrays indexed by that id. A grid of ids, in the
+ * same row-major order as Field, tells which entity is at each location.
+ *
+ * An entity's attributes take fifteen bytes this way, a fraction of a
+ * Species object with its Location and the references to it, and a pass
+ * over one attribute of every entity reads memory in order.
+ *
+ * Ids are handed out in order. Dead entities keep their id until
+ * compact is called, which closes the gaps while keeping the order.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class EntityStore
+{
+    // The id stored in the grid for an empty location.
+    public static final int EMPTY = -1;
+    // The number of locations surrounding a location.
+    private static final int NEIGHBOUR_DIRECTIONS = 8;
+    // Row and column offsets of each surrounding direction, in row-major
+    // order, as in Field.
+    private static final int[] ROW_OFFSETS = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] COL_OFFSETS = {-1, 0, 1, -1, 1, -1, 0, 1};
+    // The bits of the flags of an entity.
+    private static final byte ALIVE = 1;
+    private static final byte FEMALE = 2;
+    private static final byte INFECTED = 4;
+    // The number of entities there is room for at first.
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    // The depth and width of the grid.
+    private int depth, width;
+    // The id of the entity at each location, or EMPTY.
+    private int[] grid;
+    // Index offset of each surrounding direction.
+    private int[] indexOffsets;
+    // The number of ids handed out.
+    private int size;
+    // The attributes of each entity, indexed by id.
+    private byte[] type;
+    private byte[] flags;
+    private byte[] hungerLoss;
+    private int[] age;
+    private int[] foodLevel;
+    private int[] location;
+    // The number of live entities of each type, and of infected ones.
+    private int[] typeCounts;
+    private int infectedCount;
+    
+    /**
+     * Create an empty store for a grid of the given size.
+     * @param depth The depth of the grid.
+     * @param width The width of the grid.
+     * @param types The number of entity types.
+     */
+    public EntityStore(int depth, int width, int types)
+    {
+        this.depth = depth;
+        this.width = width;
+        grid = new int[depth * width];
+        Arrays.fill(grid, EMPTY);
+        indexOffsets = new int[NEIGHBOUR_DIRECTIONS];
+        for(int direction = 0; direction < NEIGHBOUR_DIRECTIONS; direction++) {
+            indexOffsets[direction] = ROW_OFFSETS[direction] * width + COL_OFFSETS[direction];
+        }
+        type = new byte[INITIAL_CAPACITY];
+        flags = new byte[INITIAL_CAPACITY];
+        hungerLoss = new byte[INITIAL_CAPACITY];
+        age = new int[INITIAL_CAPACITY];
+        foodLevel = new int[INITIAL_CAPACITY];
+        location = new int[INITIAL_CAPACITY];
+        typeCounts = new int[types];
+    }
+    
+    /**
+     * Add a live entity at an empty location.
+     * @param entityType The type of the entity.
+     * @param index The index of the location.
+     * @param entityAge The age of the entity.
+     * @param food The food level of the entity.
+     * @param loss How much food the entity loses per step.
+     * @param female Whether the entity is female.
+     * @return The id of the new entity.
+     */
+    public int add(int entityType, int index, int entityAge, int food, int loss, boolean female)
+    {
+        if(size == type.length) {
+            grow();
+        }
+        int id = size++;
+        type[id] = (byte) entityType;
+        flags[id] = female ? (byte) (ALIVE | FEMALE) : ALIVE;
+        hungerLoss[id] = (byte) loss;
+        age[id] = entityAge;
+        foodLevel[id] = food;
+        location[id] = index;
+        grid[index] = id;
+        typeCounts[entityType]++;
+        return id;
+    }
+    
+    /**
+     * Kill an entity and clear its location. It keeps its id until the
+     * next compact.
+     * @param id The entity, which must be alive.
+     */
+    public void kill(int id)
+    {
+        flags[id] &= ~ALIVE;
+        grid[location[id]] = EMPTY;
+        typeCounts[type[id]]--;
+        if(isInfected(id)) {
+            infectedCount--;
+        }
+    }
+    
+    /**
+     * Move an entity to an empty location.
+     * @param id The entity.
+     * @param index The index of its new location.
+     */
+    public void move(int id, int index)
+    {
+        grid[location[id]] = EMPTY;
+        grid[index] = id;
+        location[id] = index;
+    }
+    
+    /**
+     * Infect an entity, or cure it.
+     * @param id The entity, which must be alive.
+     * @param infected Whether it is to be infected.
+     */
+    public void setInfected(int id, boolean infected)
+    {
+        if(infected != isInfected(id)) {
+            flags[id] ^= INFECTED;
+            infectedCount += infected ? 1 : -1;
+        }
+    }
+    
+    /**
+     * Drop the dead entities. The live ones keep their order but may get
+     * lower ids, so ids held from before are no longer valid.
+     */
+    public void compact()
+    {
+        int live = 0;
+        for(int id = 0; id < size; id++) {
+            if(isAlive(id)) {
+                if(live != id) {
+                    type[live] = type[id];
+                    flags[live] = flags[id];
+                    hungerLoss[live] = hungerLoss[id];
+                    age[live] = age[id];
+                    foodLevel[live] = foodLevel[id];
+                    location[live] = location[id];
+                    grid[location[live]] = live;
+                }
+                live++;
+            }
+        }
+        size = live;
+    }
+    
+    /**
+     * @return The number of ids handed out, live or dead.
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * @return The id of the entity at a location, or EMPTY.
+     */
+    public int entityAt(int index)
+    {
+        return grid[index];
+    }
+    
+    /**
+     * @return The type of an entity.
+     */
+    public int getType(int id)
+    {
+        return type[id];
+    }
+    
+    /**
+     * @return true if an entity is alive.
+     */
+    public boolean isAlive(int id)
+    {
+        return (flags[id] & ALIVE) != 0;
+    }
+    
+    /**
+     * @return true if an entity is female.
+     */
+    public boolean isFemale(int id)
+    {
+        return (flags[id] & FEMALE) != 0;
+    }
+    
+    /**
+     * @return true if an entity is infected.
+     */
+    public boolean isInfected(int id)
+    {
+        return (flags[id] & INFECTED) != 0;
+    }
+    
+    /**
+     * @return The age of an entity.
+     */
+    public int getAge(int id)
+    {
+        return age[id];
+    }
+    
+    /**
+     * Set the age of an entity.
+     */
+    public void setAge(int id, int entityAge)
+    {
+        age[id] = entityAge;
+    }
+    
+    /**
+     * @return The food level of an entity.
+     */
+    public int getFoodLevel(int id)
+    {
+        return foodLevel[id];
+    }
+    
+    /**
+     * Set the food level of an entity.
+     */
+    public void setFoodLevel(int id, int food)
+    {
+        foodLevel[id] = food;
+    }
+    
+    /**
+     * @return How much food an entity loses per step.
+     */
+    public int getHungerLoss(int id)
+    {
+        return hungerLoss[id];
+    }
+    
+    /**
+     * Set how much food an entity loses per step.
+     */
+    public void setHungerLoss(int id, int loss)
+    {
+        hungerLoss[id] = (byte) loss;
+    }
+    
+    /**
+     * @return The index of the location of an entity.
+     */
+    public int getLocation(int id)
+    {
+        return location[id];
+    }
+    
+    /**
+     * @return The number of live entities of a type.
+     */
+    public int getCount(int entityType)
+    {
+        return typeCounts[entityType];
+    }
+    
+    /**
+     * @return The number of live infected entities.
+     */
+    public int getInfectedCount()
+    {
+        return infectedCount;
+    }
+    
+    /**
+     * Return which of the locations around the given one lie within the
+     * grid, as a mask with one bit per direction, numbered as in Field.
+     * @param index The index of the location.
+     * @return The mask of neighbouring directions.
+     */
+    public int neighbourMask(int index)
+    {
+        int row = index / width;
+        int col = index % width;
+        int mask = 0xFF;
+        if(row == 0) {
+            mask &= ~0x07;
+        }
+        if(row == depth - 1) {
+            mask &= ~0xE0;
+        }
+        if(col == 0) {
+            mask &= ~0x29;
+        }
+        if(col == width - 1) {
+            mask &= ~0x94;
+        }
+        return mask;
+    }
+    
+    /**
+     * Return which of the locations around the given one are empty.
+     * @param index The index of the location.
+     * @return The mask of empty neighbouring directions, 0 if none is.
+     */
+    public int freeNeighbourMask(int index)
+    {
+        int free = 0;
+        for(int mask = neighbourMask(index); mask != 0; mask &= mask - 1) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            if(grid[index + indexOffsets[direction]] == EMPTY) {
+                free |= 1 << direction;
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Return the index of the location next to the given one.
+     * @param index The index of the location.
+     * @param direction The direction, which must stay within the grid.
+     * @return The index of the adjacent location.
+     */
+    public int adjacentIndex(int index, int direction)
+    {
+        return index + indexOffsets[direction];
+    }
+    
+    /**
+     * @return The depth of the grid.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+    
+    /**
+     * @return The width of the grid.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+    
+    /**
+     * Make room for twice as many entities.
+     */
+    private void grow()
+    {
+        int capacity = type.length * 2;
+        type = Arrays.copyOf(type, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        hungerLoss = Arrays.copyOf(hungerLoss, capacity);
+        age = Arrays.copyOf(age, capacity);
+        foodLevel = Arrays.copyOf(foodLevel, capacity);
+        location = Arrays.copyOf(location, capacity);
+    }
+}
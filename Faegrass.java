@@ -20,8 +20,6 @@ public class Faegrass extends Species
     private static final double BREEDING_PROBABILITY = 0.4;
     // The maximum number of plantings.
     private static final int MAX_LITTER_SIZE = 100;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
     
     
     
@@ -39,6 +37,7 @@ public class Faegrass extends Species
     public Faegrass(boolean randomAge, Field field, Location location)
     {
         super(field, location, false);
+        Random rand = Randomizer.getRandom();
         age = 0;
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
@@ -58,6 +57,21 @@ public class Faegrass extends Species
         }
     }
 
+    /**
+     * Plan the faegrass's step without changing the field: it ages
+     * and may spread.
+     * @param intent The intent to record the plans in.
+     */
+    public void plan(Intent intent)
+    {
+        age++;
+        if(age > MAX_AGE) {
+            intent.die();
+            return;
+        }
+        planBirths(intent, breed());
+    }
+
     /**
      * Increase the age.
      * This could result in the faegrasses death.
@@ -78,14 +92,27 @@ public class Faegrass extends Species
     private void giveBirth(List<Species> newFaegrasses)
     {
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        Location location = getLocation();
+        int free = freeNeighbourMask(location);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Faegrass seed = new Faegrass(false, field, loc);
-            newFaegrasses.add(seed);
+        for(int b = 0; b < births && free != 0; b++) {
+            int direction = field.randomDirection(free);
+            free &= ~(1 << direction);
+            Location loc = field.adjacentLocation(location, direction);
+            newFaegrasses.add(createYoung(field, loc));
         }
     }
+    
+    /**
+     * Create a newly planted faegrass.
+     * @param field The field the new faegrass lives in.
+     * @param location The location of the new faegrass.
+     * @return The new faegrass.
+     */
+    protected Species createYoung(Field field, Location location)
+    {
+        return new Faegrass(false, field, location);
+    }
         
     /**
      * Generate a number representing the number of spread plants.
@@ -94,6 +121,7 @@ public class Faegrass extends Species
      */
     private int breed()
     {
+        Random rand = Randomizer.getRandom();
         int births = 0;
         if(rand.nextDouble() <= BREEDING_PROBABILITY) {
             births = rand.nextInt(MAX_LITTER_SIZE) + 1;
@@ -1,6 +1,5 @@
 import java.util.List;
 import java.util.Random;
-import java.util.Iterator;
 
 /**
  * A simple model of a fairy.
@@ -24,8 +23,6 @@ public class Fairy extends Species
     private static final double BREEDING_PROBABILITY = 0.85;
     // The maximum number of births.
     private static final int MAX_LITTER_SIZE = 4;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
     //The probability a fairy becomes diseased during its existence.
     //The program attempts to infect it every step.
     private static final double DISEASE_PROBABILITY = 0.1;
@@ -50,6 +47,7 @@ public class Fairy extends Species
     public Fairy(boolean randomAge, Field field, Location location)//, boolean isDiseased)
     {
         super(field, location, isNocturnal);//, isDiseased);
+        Random rand = Randomizer.getRandom();
         age = 0;
         this.isFemale = isFemale;
         //this.isDiseased = isDiseased;
@@ -66,6 +64,7 @@ public class Fairy extends Species
      */
     public void act(List<Species> newRabbits)
     {
+        Random rand = Randomizer.getRandom();
         incrementAge();
         if(isAlive()) {
             giveBirth(newRabbits);
@@ -73,7 +72,7 @@ public class Fairy extends Species
                 toggleInfection();
             }
             // Try to move into a free location.
-            Location newLocation = getField().freeAdjacentLocation(getLocation());
+            Location newLocation = freeAdjacentLocation();
             if(newLocation != null) {
                 setLocation(newLocation);
             }
@@ -84,6 +83,26 @@ public class Fairy extends Species
         }
     }
 
+    /**
+     * Plan the fairy's step without changing the field: it ages, may
+     * breed and become diseased, and runs to a free location.
+     * @param intent The intent to record the plans in.
+     */
+    public void plan(Intent intent)
+    {
+        Random rand = Randomizer.getRandom();
+        age++;
+        if(age > MAX_AGE) {
+            intent.die();
+            return;
+        }
+        int free = planBirths(intent, breed());
+        if (rand.nextDouble() <= DISEASE_PROBABILITY ){
+            intent.toggleInfection();
+        }
+        planMove(intent, free);
+    }
+
     /**
      * Increase the age.
      * This could result in the fairy's death.
@@ -105,22 +124,34 @@ public class Fairy extends Species
     private void giveBirth(List<Species> newRabbits)
     {
         // New fairys are born into adjacent locations.
-        // Get a list of adjacent free locations.
-        Random rand = Randomizer.getRandom();
+        // Get a mask of the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        Location location = getLocation();
+        int free = freeNeighbourMask(location);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            //Rabbit young = new Rabbit(false, field, loc, isFemale);
-            Fairy young = new Fairy(true, field, loc);
-            if(rand.nextDouble() <= DISEASE_PROBABILITY) {
-                young.toggleInfection();
-            }
-            newRabbits.add(young);
-            //newRabbits.add(young);
+        for(int b = 0; b < births && free != 0; b++) {
+            int direction = field.randomDirection(free);
+            free &= ~(1 << direction);
+            Location loc = field.adjacentLocation(location, direction);
+            newRabbits.add(createYoung(field, loc));
         }
     }
+    
+    /**
+     * Create a newborn fairy, which may be born infected.
+     * @param field The field the newborn lives in.
+     * @param location The location of the newborn.
+     * @return The newborn.
+     */
+    protected Species createYoung(Field field, Location location)
+    {
+        Random rand = Randomizer.getRandom();
+        Fairy young = new Fairy(true, field, location);
+        if(rand.nextDouble() <= DISEASE_PROBABILITY) {
+            young.toggleInfection();
+        }
+        return young;
+    }
         
     /**
      * Generate a number representing the number of births,
@@ -131,6 +162,7 @@ public class Fairy extends Species
      */
     private int breed()
     {
+        Random rand = Randomizer.getRandom();
         int births = 0;
         if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
             births = rand.nextInt(MAX_LITTER_SIZE) + 1;
@@ -153,11 +185,10 @@ public class Fairy extends Species
     private boolean hasMate()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object animal = field.getNeighbourAt(location, adjacent, i);
             if(animal instanceof Fairy) {
                 Fairy fairy = (Fairy) animal;
                 if(fairy.gender()!=this.gender()) {
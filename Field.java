@@ -1,48 +1,159 @@
-import java.util.Collections;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single species.
- * 
+ *
+ * Positions are stored in a single array in row-major order, so each
+ * position also has an int index (row * width + col). Every operation
+ * is available on indices; the Location versions are thin adapters
+ * over them.
+ *
+ * The field keeps count of the objects of each class in it, and of the
+ * infected species, as they are placed and cleared, so statistics never
+ * need to scan the grid.
+ *
+ * The grid holds int handles of its occupants (see SlotMap) rather than
+ * references, so the garbage collector never has to scan it. Fields can
+ * share their occupants, as the two buffers of a BufferedStep do. A
+ * field has at most SlotMap.MAX_CAPACITY locations, so that a handle
+ * always has room for every occupant the field could hold.
+ *
+ * The field also notes which locations have changed since a view last
+ * drew it (see clearChanges), so the view need only draw those again.
+ * A change is one byte store to the location and one to its row, which
+ * is safe from any thread, as each byte is written on its own.
+ *
+ * Rivers and other biome features are not occupants: they lie in the
+ * field's Terrain, which fields can share too. A location with a feature
+ * is free only to the species that can move through it.
+ *
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
 public class Field
 {
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
+    // The number of locations surrounding a location.
+    private static final int NEIGHBOUR_DIRECTIONS = 8;
+    // Row and column offsets of each surrounding direction, in row-major order.
+    private static final int[] ROW_OFFSETS = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] COL_OFFSETS = {-1, 0, 1, -1, 1, -1, 0, 1};
+    // Bits used to pack one direction into a neighbourhood.
+    private static final int DIRECTION_BITS = 3;
+    private static final int DIRECTION_MASK = 7;
+    // Position of the neighbour count in a packed neighbourhood.
+    private static final int COUNT_SHIFT = 24;
+    // Directions of a neighbour mask falling in the row above, beside and below.
+    private static final int ABOVE_SHIFT = 0;
+    private static final int BELOW_SHIFT = 5;
+    private static final int LEFT_DIRECTION = 3;
+    private static final int RIGHT_DIRECTION = 4;
+    // Atomic access to the words of the occupancy bit set.
+    private static final VarHandle OCCUPIED_WORD = MethodHandles.arrayElementVarHandle(long[].class);
     
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the species.
-    private Object[][] field;
-
+    // The handles of the occupants, in row-major order.
+    private int[] field;
+    // The occupants of this field, and of any field sharing them.
+    private SlotMap<Occupant> occupants;
+    // The terrain of this field, and of any field sharing it.
+    private Terrain terrain;
+    // One bit per location, in row-major order, set while it is occupied.
+    private long[] occupied;
+    // Index offset of each surrounding direction.
+    private int[] indexOffsets;
+    // The shared Location of each position, created when first asked for.
+    private Location[] locations;
+    // The number of objects of each class in the field.
+    private ConcurrentHashMap<Class, LongAdder> counts;
+    // The number of infected species in the field.
+    private LongAdder infected;
+    // The weather over the field, set by the simulation on every step.
+    private WeatherState weather;
+    // Set for each location, and each row, that has changed since the
+    // changes were last cleared, and whether every location may have.
+    private byte[] changedCells;
+    private byte[] changedRows;
+    private boolean allChanged;
+    
     /**
      * Represent a field of the given dimensions.
      * @param depth The depth of the field.
      * @param width The width of the field.
+     * @throws IllegalArgumentException if the field has more than
+     *         SlotMap.MAX_CAPACITY locations.
      */
     public Field(int depth, int width)
+    {
+        this(depth, width, new SlotMap<>(sizeOf(depth, width)), new Terrain(depth, width));
+    }
+    
+    /**
+     * Represent a field of the given dimensions, sharing its occupants
+     * and its terrain with other fields.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param occupants The occupants, as returned by getOccupants.
+     * @param terrain The terrain, as returned by getTerrain.
+     */
+    public Field(int depth, int width, SlotMap<Occupant> occupants, Terrain terrain)
     {
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width];
+        this.occupants = occupants;
+        this.terrain = terrain;
+        field = new int[depth * width];
+        locations = new Location[depth * width];
+        occupied = new long[(depth * width + 63) / 64];
+        indexOffsets = new int[NEIGHBOUR_DIRECTIONS];
+        for(int direction = 0; direction < NEIGHBOUR_DIRECTIONS; direction++) {
+            indexOffsets[direction] = ROW_OFFSETS[direction] * width + COL_OFFSETS[direction];
+        }
+        counts = new ConcurrentHashMap<>();
+        infected = new LongAdder();
+        weather = WeatherState.CLEAR;
+        changedCells = new byte[depth * width];
+        changedRows = new byte[depth];
+        allChanged = true;
     }
     
     /**
-     * Empty the field.
+     * Empty the field. Its occupants are removed for good: their
+     * handles become stale in every field sharing them.
      */
     public void clear()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
+        for(int handle : field) {
+            if(handle != SlotMap.NONE) {
+                remove(handle);
             }
         }
+        clearLocations();
+    }
+    
+    /**
+     * Empty every location, but keep the occupants, which may still be
+     * placed in a field sharing them.
+     */
+    public void clearLocations()
+    {
+        Arrays.fill(field, SlotMap.NONE);
+        Arrays.fill(occupied, 0);
+        for(LongAdder count : counts.values()) {
+            count.reset();
+        }
+        infected.reset();
+        allChanged = true;
     }
     
     /**
@@ -51,7 +162,33 @@ public class Field
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        clear(indexOf(location));
+    }
+    
+    /**
+     * Clear the location with the given index.
+     * @param index The index of the location to clear.
+     */
+    public void clear(int index)
+    {
+        int old = field[index];
+        if(old != SlotMap.NONE) {
+            field[index] = SlotMap.NONE;
+            setOccupied(index, false);
+            markChanged(index);
+            uncount(occupants.get(old));
+        }
+    }
+    
+    /**
+     * Remove an occupant for good, once it has been cleared from its
+     * location. Its handle becomes stale, so any field still holding it
+     * finds nothing there.
+     * @param occupant The occupant to remove.
+     */
+    public void discard(Occupant occupant)
+    {
+        remove(occupant.getHandle());
     }
     
     /**
@@ -62,9 +199,9 @@ public class Field
      * @param row Row coordinate of the location.
      * @param col Column coordinate of the location.
      */
-    public void place(Object species, int row, int col)
+    public void place(Occupant species, int row, int col)
     {
-        place(species, new Location(row, col));
+        place(species, indexOf(row, col));
     }
     
     /**
@@ -74,9 +211,128 @@ public class Field
      * @param species The species to be placed.
      * @param location Where to place the species.
      */
-    public void place(Object species, Location location)
+    public void place(Occupant species, Location location)
+    {
+        place(species, indexOf(location));
+    }
+    
+    /**
+     * Place an species at the location with the given index.
+     * If there is already an species at the location it will
+     * be lost.
+     * The species is given a handle if it does not have one yet.
+     * @param species The species to be placed.
+     * @param index The index of the location.
+     */
+    public void place(Occupant species, int index)
+    {
+        int handle = species.getHandle();
+        if(!occupants.contains(handle)) {
+            handle = occupants.insert(species);
+            species.setHandle(handle);
+        }
+        int old = field[index];
+        field[index] = handle;
+        setOccupied(index, true);
+        if(old != SlotMap.NONE && old != handle) {
+            uncount(occupants.get(old));
+            remove(old);
+        }
+        if(old != handle) {
+            count(species);
+            markChanged(index);
+        }
+    }
+    
+    /**
+     * @return true if every location may have changed since the changes
+     *         were last cleared, as when the field has been emptied.
+     */
+    public boolean isAllChanged()
+    {
+        return allChanged;
+    }
+    
+    /**
+     * @return true if a location in the given row has changed since the
+     *         changes were last cleared.
+     */
+    public boolean isRowChanged(int row)
+    {
+        return changedRows[row] != 0;
+    }
+    
+    /**
+     * @return true if the location with the given index has changed
+     *         since the changes were last cleared.
+     */
+    public boolean isChanged(int index)
+    {
+        return changedCells[index] != 0;
+    }
+    
+    /**
+     * Forget the changes so far, once a view has drawn them. Only the
+     * rows that changed are gone through.
+     */
+    public void clearChanges()
+    {
+        if(allChanged) {
+            Arrays.fill(changedCells, (byte) 0);
+            Arrays.fill(changedRows, (byte) 0);
+            allChanged = false;
+            return;
+        }
+        for(int row = 0; row < depth; row++) {
+            if(changedRows[row] != 0) {
+                Arrays.fill(changedCells, row * width, (row + 1) * width, (byte) 0);
+                changedRows[row] = 0;
+            }
+        }
+    }
+    
+    /**
+     * Record that a species in the field has become infected or has
+     * recovered.
+     * @param nowInfected true if the species has become infected.
+     */
+    public void infectionToggled(boolean nowInfected)
+    {
+        if(nowInfected) {
+            infected.increment();
+        }
+        else {
+            infected.decrement();
+        }
+    }
+    
+    /**
+     * Return how many objects of the given class are in the field.
+     * @param type The class to count.
+     * @return The number of objects of exactly that class.
+     */
+    public int getCount(Class type)
+    {
+        LongAdder count = counts.get(type);
+        return count == null ? 0 : count.intValue();
+    }
+    
+    /**
+     * Return the classes that have been placed in the field so far.
+     * Their count may since have dropped to zero.
+     * @return The classes.
+     */
+    public Set<Class> getCountedClasses()
+    {
+        return counts.keySet();
+    }
+    
+    /**
+     * @return How many infected species are in the field.
+     */
+    public int getInfectedCount()
     {
-        field[location.getRow()][location.getCol()] = species;
+        return infected.intValue();
     }
     
     /**
@@ -86,7 +342,7 @@ public class Field
      */
     public Object getObjectAt(Location location)
     {
-        return getObjectAt(location.getRow(), location.getCol());
+        return occupants.get(field[indexOf(location)]);
     }
     
     /**
@@ -97,7 +353,87 @@ public class Field
      */
     public Object getObjectAt(int row, int col)
     {
-        return field[row][col];
+        return occupants.get(field[indexOf(row, col)]);
+    }
+    
+    /**
+     * Return the species at the location with the given index, if any.
+     * @param index The index of the location.
+     * @return The species at the location, or null if there is none.
+     */
+    public Object getObjectAt(int index)
+    {
+        return occupants.get(field[index]);
+    }
+    
+    /**
+     * Return the index of the given location.
+     * @param location The location.
+     * @return Its index, row * width + col.
+     */
+    public int indexOf(Location location)
+    {
+        return location.getRow() * width + location.getCol();
+    }
+    
+    /**
+     * Return the index of the given row and column.
+     * @param row The row.
+     * @param col The column.
+     * @return The index, row * width + col.
+     */
+    public int indexOf(int row, int col)
+    {
+        return row * width + col;
+    }
+    
+    /**
+     * Return the shared Location for the given row and column.
+     * Every call with the same position returns the same instance, so
+     * moving around the field does not create new Locations.
+     * @param row The row.
+     * @param col The column.
+     * @return The location, which must lie within the grid.
+     */
+    public Location locationAt(int row, int col)
+    {
+        return locationAt(indexOf(row, col));
+    }
+    
+    /**
+     * Return the shared Location for the given index.
+     * @param index The index of the location.
+     * @return The location.
+     */
+    public Location locationAt(int index)
+    {
+        Location location = locations[index];
+        if(location == null) {
+            // Location is immutable, so a racing second copy is harmless.
+            location = new Location(rowOf(index), colOf(index));
+            locations[index] = location;
+        }
+        return location;
+    }
+    
+    /**
+     * Return the row of the location with the given index.
+     * @param index The index of the location.
+     * @return Its row.
+     */
+    public int rowOf(int index)
+    {
+        return index / width;
+    }
+    
+    /**
+     * Return the column of the location with the given index.
+     * @param index The index of the location.
+     * @return Its column.
+     */
+    public int colOf(int index)
+    {
+        return index % width;
     }
     
     /**
@@ -110,8 +446,8 @@ public class Field
      */
     public Location randomAdjacentLocation(Location location)
     {
-        List<Location> adjacent = adjacentLocations(location);
-        return adjacent.get(0);
+        int neighbours = shuffledNeighbours(location);
+        return neighbourLocation(location, neighbours, 0);
     }
     
     /**
@@ -122,10 +458,10 @@ public class Field
     public List<Location> getFreeAdjacentLocations(Location location)
     {
         List<Location> free = new LinkedList<>();
-        List<Location> adjacent = adjacentLocations(location);
-        for(Location next : adjacent) {
-            if(getObjectAt(next) == null) {
-                free.add(next);
+        int neighbours = shuffledNeighbours(location);
+        for(int i = 0; i < neighbourCount(neighbours); i++) {
+            if(getNeighbourAt(location, neighbours, i) == null) {
+                free.add(neighbourLocation(location, neighbours, i));
             }
         }
         return free;
@@ -141,16 +477,165 @@ public class Field
      */
     public Location freeAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
+        int free = freeNeighbourMask(location);
+        if(free != 0) {
+            return adjacentLocation(location, randomDirection(free));
         }
         else {
-            return null ;
+            return null;
         }
     }
-
+    
+    /**
+     * Try to find a free location that is adjacent to the location
+     * with the given index.
+     * @param index The index of the location.
+     * @return The index of a free adjacent location, or -1 if there is none.
+     */
+    public int freeAdjacentIndex(int index)
+    {
+        int free = freeNeighbourMask(index);
+        if(free != 0) {
+            return adjacentIndex(index, randomDirection(free));
+        }
+        else {
+            return -1;
+        }
+    }
+    
+    /**
+     * Return which of the locations adjacent to the given one are free,
+     * as a mask with one bit per direction (see adjacentLocation).
+     * @param location The location whose neighbours are wanted.
+     * @return The mask of free neighbouring directions, 0 if none is free.
+     */
+    public int freeNeighbourMask(Location location)
+    {
+        return freeNeighbourMask(indexOf(location));
+    }
+    
+    /**
+     * Return which of the locations adjacent to the one with the given
+     * index are free, as a mask with one bit per direction.
+     * A bit is only set if its location lies within the grid, is
+     * empty and is open land. The mask is read straight from the
+     * occupancy and terrain bits, without looking at the species
+     * themselves.
+     * @param index The index of the location whose neighbours are wanted.
+     * @return The mask of free neighbouring directions, 0 if none is free.
+     */
+    public int freeNeighbourMask(int index)
+    {
+        return ~(neighbourBits(occupied, index) | neighbourBits(terrain.getFeatureBits(), index)) & 0xFF;
+    }
+    
+    /**
+     * Return which of the locations adjacent to the one with the given
+     * index are free to a species, as a mask with one bit per direction.
+     * A bit is only set if its location lies within the grid, is empty
+     * and has terrain the species may enter.
+     * @param index The index of the location whose neighbours are wanted.
+     * @param passable The passability mask of the species
+     *                 (see Terrain.passableMask).
+     * @return The mask of free neighbouring directions, 0 if none is free.
+     */
+    public int freeNeighbourMask(int index, int passable)
+    {
+        int free = ~neighbourBits(occupied, index) & 0xFF;
+        int features = free & neighbourBits(terrain.getFeatureBits(), index);
+        for(; features != 0; features &= features - 1) {
+            int direction = Integer.numberOfTrailingZeros(features);
+            if(!canEnter(adjacentIndex(index, direction), passable)) {
+                free &= ~(1 << direction);
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Return whether a species may enter the terrain at a location,
+     * whether or not the location is occupied.
+     * @param index The index of the location.
+     * @param passable The passability mask of the species.
+     * @return true if the species may enter the terrain there.
+     */
+    public boolean canEnter(int index, int passable)
+    {
+        return Terrain.canEnter(passable, terrain.kindAt(index));
+    }
+    
+    /**
+     * Return which of the directions around the given location lie
+     * within the grid, as a mask with one bit per direction.
+     * @param location The location whose neighbours are wanted.
+     * @return The mask of neighbouring directions inside the grid.
+     */
+    public int neighbourMask(Location location)
+    {
+        int mask = 0xFF;
+        if(location.getRow() == 0) {
+            mask &= ~0x07;
+        }
+        if(location.getRow() == depth - 1) {
+            mask &= ~0xE0;
+        }
+        if(location.getCol() == 0) {
+            mask &= ~0x29;
+        }
+        if(location.getCol() == width - 1) {
+            mask &= ~0x94;
+        }
+        return mask;
+    }
+    
+    /**
+     * Choose one of the directions of a neighbour mask at random.
+     * A single random number picks which of the set bits to use.
+     * @param mask A non-empty mask such as from freeNeighbourMask.
+     * @return The chosen direction.
+     */
+    public int randomDirection(int mask)
+    {
+        Random rand = Randomizer.getRandom();
+        int count = Integer.bitCount(mask);
+        if(count > 1) {
+            // Drop the lowest set bits until the chosen one is lowest.
+            for(int k = rand.nextInt(count); k > 0; k--) {
+                mask &= mask - 1;
+            }
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+    
+    /**
+     * Return the location next to the given one in a direction.
+     * Directions number the surrounding locations 0 to 7 in row-major
+     * order: 0 to 2 are the row above, 3 and 4 are left and right,
+     * 5 to 7 are the row below.
+     * The direction must stay within the grid, as the directions
+     * of a neighbour mask or neighbourhood always do.
+     * @param location The location to start from.
+     * @param direction The direction to go in.
+     * @return The adjacent location.
+     */
+    public Location adjacentLocation(Location location, int direction)
+    {
+        return locationAt(adjacentIndex(indexOf(location), direction));
+    }
+    
+    /**
+     * Return the index of the location next to the one with the given
+     * index in a direction. The result is only meaningful if the
+     * direction stays within the grid.
+     * @param index The index of the location to start from.
+     * @param direction The direction to go in.
+     * @return The index of the adjacent location.
+     */
+    public int adjacentIndex(int index, int direction)
+    {
+        return index + indexOffsets[direction];
+    }
+    
     /**
      * Return a shuffled list of locations adjacent to the given one.
      * The list will not include the location itself.
@@ -164,28 +649,291 @@ public class Field
         // The list of locations to be returned.
         List<Location> locations = new LinkedList<>();
         if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
-                }
+            int neighbours = shuffledNeighbours(location);
+            for(int i = 0; i < neighbourCount(neighbours); i++) {
+                locations.add(neighbourLocation(location, neighbours, i));
             }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
         }
         return locations;
     }
-
+    
+    /**
+     * Return the directions to the locations adjacent to the given one,
+     * in a random order. The neighbourhood is packed into a single int
+     * instead of a list, so nothing is allocated; use neighbourCount,
+     * getNeighbourAt and neighbourLocation to walk through it.
+     * The shuffle draws the same random numbers as shuffling the list
+     * from adjacentLocations, so both give the same order.
+     * The neighbourhood will not include the location itself and
+     * all neighbours will lie within the grid.
+     * @param location The location from which to generate adjacencies.
+     * @return The shuffled neighbourhood of the location.
+     */
+    public int shuffledNeighbours(Location location)
+    {
+        assert location != null : "Null location passed to shuffledNeighbours";
+        return shuffledNeighbours(indexOf(location));
+    }
+    
+    /**
+     * Return the directions to the locations adjacent to the one with
+     * the given index, in a random order, packed as for
+     * shuffledNeighbours(Location).
+     * @param index The index of the location.
+     * @return The shuffled neighbourhood of the location.
+     */
+    public int shuffledNeighbours(int index)
+    {
+        Random rand = Randomizer.getRandom();
+        int row = rowOf(index);
+        int col = index - row * width;
+        // Collect the valid directions in row-major order.
+        int directions = 0;
+        int count = 0;
+        for(int direction = 0; direction < NEIGHBOUR_DIRECTIONS; direction++) {
+            int nextRow = row + ROW_OFFSETS[direction];
+            int nextCol = col + COL_OFFSETS[direction];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                directions |= direction << (count * DIRECTION_BITS);
+                count++;
+            }
+        }
+        // Shuffle them in place, as Collections.shuffle does.
+        for(int i = count; i > 1; i--) {
+            int j = rand.nextInt(i);
+            int first = (i - 1) * DIRECTION_BITS;
+            int second = j * DIRECTION_BITS;
+            int a = (directions >>> first) & DIRECTION_MASK;
+            int b = (directions >>> second) & DIRECTION_MASK;
+            directions &= ~((DIRECTION_MASK << first) | (DIRECTION_MASK << second));
+            directions |= (b << first) | (a << second);
+        }
+        return directions | (count << COUNT_SHIFT);
+    }
+    
+    /**
+     * Return how many locations a neighbourhood contains.
+     * @param neighbours A neighbourhood from shuffledNeighbours.
+     * @return The number of adjacent locations.
+     */
+    public static int neighbourCount(int neighbours)
+    {
+        return neighbours >>> COUNT_SHIFT;
+    }
+    
+    /**
+     * Return the species in the i'th location of a neighbourhood, if any.
+     * @param location The location the neighbourhood was generated from.
+     * @param neighbours A neighbourhood from shuffledNeighbours.
+     * @param i Which neighbour, from 0 to neighbourCount - 1.
+     * @return The species at that location, or null if there is none.
+     */
+    public Object getNeighbourAt(Location location, int neighbours, int i)
+    {
+        return occupants.get(field[neighbourIndex(indexOf(location), neighbours, i)]);
+    }
+    
+    /**
+     * Return the species in the i'th location of a neighbourhood, if any.
+     * @param index The index the neighbourhood was generated from.
+     * @param neighbours A neighbourhood from shuffledNeighbours.
+     * @param i Which neighbour, from 0 to neighbourCount - 1.
+     * @return The species at that location, or null if there is none.
+     */
+    public Object getNeighbourAt(int index, int neighbours, int i)
+    {
+        return occupants.get(field[neighbourIndex(index, neighbours, i)]);
+    }
+    
+    /**
+     * Return the i'th location of a neighbourhood.
+     * @param location The location the neighbourhood was generated from.
+     * @param neighbours A neighbourhood from shuffledNeighbours.
+     * @param i Which neighbour, from 0 to neighbourCount - 1.
+     * @return The adjacent location.
+     */
+    public Location neighbourLocation(Location location, int neighbours, int i)
+    {
+        return adjacentLocation(location, neighbourDirection(neighbours, i));
+    }
+    
+    /**
+     * Return the index of the i'th location of a neighbourhood.
+     * @param index The index the neighbourhood was generated from.
+     * @param neighbours A neighbourhood from shuffledNeighbours.
+     * @param i Which neighbour, from 0 to neighbourCount - 1.
+     * @return The index of the adjacent location.
+     */
+    public int neighbourIndex(int index, int neighbours, int i)
+    {
+        return index + indexOffsets[neighbourDirection(neighbours, i)];
+    }
+    
+    /**
+     * Return the direction of the i'th location of a neighbourhood.
+     * @param neighbours A neighbourhood from shuffledNeighbours.
+     * @param i Which neighbour, from 0 to neighbourCount - 1.
+     * @return The direction, as used by adjacentLocation.
+     */
+    public static int neighbourDirection(int neighbours, int i)
+    {
+        return (neighbours >>> (i * DIRECTION_BITS)) & DIRECTION_MASK;
+    }
+    
+    /**
+     * Record whether the location with the given index is occupied.
+     * One word holds the bits of 64 locations, which may belong to
+     * different tiles of a parallel step, so it is updated atomically.
+     */
+    private void setOccupied(int index, boolean isOccupied)
+    {
+        if(isOccupied) {
+            OCCUPIED_WORD.getAndBitwiseOr(occupied, index >>> 6, 1L << index);
+        }
+        else {
+            OCCUPIED_WORD.getAndBitwiseAnd(occupied, index >>> 6, ~(1L << index));
+        }
+    }
+    
+    /**
+     * Return the bits of a bit set, such as the occupancy bits, for the
+     * locations around the one with the given index, as a mask with one
+     * bit per direction. Locations outside the grid count as set.
+     * @param bitSet One bit per location, in row-major order.
+     * @param index The index of the location whose neighbours are wanted.
+     */
+    private int neighbourBits(long[] bitSet, int index)
+    {
+        int row = rowOf(index);
+        int col = index - row * width;
+        int set = 0xFF;
+        if(row > 0) {
+            set &= ~(7 << ABOVE_SHIFT) | (runOf(bitSet, index - width, col) << ABOVE_SHIFT);
+        }
+        int beside = runOf(bitSet, index, col);
+        set &= ~((1 << LEFT_DIRECTION) | (1 << RIGHT_DIRECTION))
+               | ((beside & 1) << LEFT_DIRECTION) | ((beside >> 2) << RIGHT_DIRECTION);
+        if(row < depth - 1) {
+            set &= ~(7 << BELOW_SHIFT) | (runOf(bitSet, index + width, col) << BELOW_SHIFT);
+        }
+        return set;
+    }
+    
+    /**
+     * Return the bits of the three locations centred on the one with
+     * the given index and column, as bits 0 (left) to 2 (right).
+     * Locations beyond the left or right edge count as set.
+     */
+    private int runOf(long[] bitSet, int index, int col)
+    {
+        int bits;
+        if(col == 0) {
+            bits = (bitsAt(bitSet, index) << 1) | 1;
+        }
+        else {
+            bits = bitsAt(bitSet, index - 1);
+        }
+        if(col == width - 1) {
+            bits |= 4;
+        }
+        return bits & 7;
+    }
+    
+    /**
+     * Return the bits starting at the given index, which may straddle
+     * two words of the bit set.
+     */
+    private static int bitsAt(long[] bitSet, int index)
+    {
+        int word = index >>> 6;
+        int shift = index & 63;
+        long bits = bitSet[word] >>> shift;
+        if(shift > 61 && word + 1 < bitSet.length) {
+            bits |= bitSet[word + 1] << (64 - shift);
+        }
+        return (int) bits;
+    }
+    
+    /**
+     * @return The terrain of this field, to share with another field.
+     */
+    public Terrain getTerrain()
+    {
+        return terrain;
+    }
+    
+    /**
+     * @return The occupants of this field, to share with another field.
+     */
+    public SlotMap<Occupant> getOccupants()
+    {
+        return occupants;
+    }
+    
+    /**
+     * Remove an occupant from the occupants for good, taking its handle
+     * from it, so that a stale copy is never kept by the occupant itself.
+     * @param handle The handle of the occupant, which may be stale.
+     */
+    private void remove(int handle)
+    {
+        Occupant occupant = occupants.get(handle);
+        if(occupant != null) {
+            occupants.remove(handle);
+            occupant.setHandle(SlotMap.NONE);
+        }
+    }
+    
+    /**
+     * Return the number of locations in a field of the given size.
+     * @throws IllegalArgumentException if there are more than
+     *         SlotMap.MAX_CAPACITY.
+     */
+    private static int sizeOf(int depth, int width)
+    {
+        long size = (long) depth * width;
+        if(size > SlotMap.MAX_CAPACITY) {
+            throw new IllegalArgumentException("A field has at most " + SlotMap.MAX_CAPACITY
+                                               + " locations, not " + size + ".");
+        }
+        return (int) size;
+    }
+    
+    /**
+     * Count an object placed in the field.
+     */
+    private void count(Object object)
+    {
+        counts.computeIfAbsent(object.getClass(), type -> new LongAdder()).increment();
+        if(object instanceof Species && ((Species) object).isInfected()) {
+            infected.increment();
+        }
+    }
+    
+    /**
+     * Stop counting an object cleared from the field.
+     */
+    private void uncount(Object object)
+    {
+        if(object == null) {
+            // Discarded while still placed here.
+            return;
+        }
+        counts.get(object.getClass()).decrement();
+        if(object instanceof Species && ((Species) object).isInfected()) {
+            infected.decrement();
+        }
+    }
+    
+    /**
+     * Note that the location with the given index has changed.
+     */
+    private void markChanged(int index)
+    {
+        changedCells[index] = 1;
+        changedRows[index / width] = 1;
+    }
+    
     /**
      * Return the depth of the field.
      * @return The depth of the field.
@@ -203,4 +951,31 @@ public class Field
     {
         return width;
     }
+    
+    /**
+     * @return The weather over the field.
+     */
+    public WeatherState getWeather()
+    {
+        return weather;
+    }
+    
+    /**
+     * Set the weather over the field, for the species in it to see.
+     * @param weather The weather.
+     */
+    public void setWeather(WeatherState weather)
+    {
+        this.weather = weather;
+    }
+    
+    /**
+     * Return the number of locations in the field.
+     * Indices run from 0 to getSize() - 1.
+     * @return The depth times the width of the field.
+     */
+    public int getSize()
+    {
+        return field.length;
+    }
 }
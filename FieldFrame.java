@@ -0,0 +1,180 @@
+import java.awt.Color;
+
+/**
+ * An unchanging picture of a simulation after a step, taken on the
+ * simulation's thread for a view to draw on its own (see FramePublisher).
+ * Once made, a frame is never changed, so it can be handed between the
+ * threads without locking.
+ *
+ * A frame holds the part of the field a view shows (see Viewport) as a
+ * short code for each of its pixels: the kind of terrain while a location
+ * is empty, or Terrain.getKindCount() plus the type id of the species in
+ * it (see Species.typeIdOf). When a pixel covers a block of locations,
+ * its code is that of the species most common in the block, or of the
+ * most common terrain if the block holds no species. A view turns the
+ * codes into colours with a single table.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class FieldFrame
+{
+    // The step the frame was taken after.
+    private final int step;
+    // The text shown for the time of day, the weather, the terrain
+    // setting, the delay and the population.
+    private final String timeOfDay, weather, river, delay, population;
+    // The number of infected species.
+    private final int infected;
+    // The colour of open land in the frame.
+    private final Color emptyColor;
+    // The depth and width of the field.
+    private final int depth, width;
+    // The part of the field in the frame.
+    private final Viewport viewport;
+    // The code of each pixel of the frame, in row-major order.
+    private final short[] cells;
+    
+    /**
+     * Create a frame. The cells array is kept, not copied, so it must not
+     * be changed afterwards.
+     */
+    public FieldFrame(int step, String timeOfDay, String weather, String river,
+                      String delay, String population, int infected,
+                      Color emptyColor, int depth, int width, Viewport viewport,
+                      short[] cells)
+    {
+        this.step = step;
+        this.timeOfDay = timeOfDay;
+        this.weather = weather;
+        this.river = river;
+        this.delay = delay;
+        this.population = population;
+        this.infected = infected;
+        this.emptyColor = emptyColor;
+        this.depth = depth;
+        this.width = width;
+        this.viewport = viewport;
+        this.cells = cells;
+    }
+    
+    /**
+     * Return a frame of the same step showing another part of the field.
+     * @param newViewport The part of the field shown.
+     * @param newCells The code of each pixel, which must not be changed.
+     * @return The new frame.
+     */
+    public FieldFrame reframe(Viewport newViewport, short[] newCells)
+    {
+        return new FieldFrame(step, timeOfDay, weather, river, delay, population,
+                              infected, emptyColor, depth, width, newViewport, newCells);
+    }
+    
+    /**
+     * Return the code of a location holding a species.
+     * @param typeId The type id of the species.
+     * @return The code.
+     */
+    public static short speciesCode(int typeId)
+    {
+        return (short) (Terrain.getKindCount() + typeId);
+    }
+    
+    /**
+     * @return The step the frame was taken after.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+    
+    /**
+     * @return The time of day, as shown.
+     */
+    public String getTimeOfDay()
+    {
+        return timeOfDay;
+    }
+    
+    /**
+     * @return The weather, as shown.
+     */
+    public String getWeather()
+    {
+        return weather;
+    }
+    
+    /**
+     * @return Whether the terrain is on, as shown.
+     */
+    public String getRiver()
+    {
+        return river;
+    }
+    
+    /**
+     * @return Whether the delay is on, as shown.
+     */
+    public String getDelay()
+    {
+        return delay;
+    }
+    
+    /**
+     * @return The population of each species, as shown.
+     */
+    public String getPopulation()
+    {
+        return population;
+    }
+    
+    /**
+     * @return The number of infected species.
+     */
+    public int getInfected()
+    {
+        return infected;
+    }
+    
+    /**
+     * @return The colour of open land.
+     */
+    public Color getEmptyColor()
+    {
+        return emptyColor;
+    }
+    
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+    
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+    
+    /**
+     * @return The part of the field in the frame.
+     */
+    public Viewport getViewport()
+    {
+        return viewport;
+    }
+    
+    /**
+     * Return the code of every pixel, in row-major order, the frame
+     * being viewport.getFrameCols() pixels wide. The array must not be
+     * changed.
+     */
+    public short[] getCells()
+    {
+        return cells;
+    }
+}
@@ -10,7 +10,7 @@ import java.util.HashMap;
  *         with Reuben Atendido and Oliver Macpherson
  * @version 23/02/2022 (2)
  */
-public class FieldStats
+public class FieldStats implements SimulationObserver
 {
     // Counters for each type of entity (fox, fairy, etc.) in the simulation.
     private HashMap<Class, Counter> counters;
@@ -70,14 +70,7 @@ public class FieldStats
      */
     public void incrementCount(Class speciesClass)
     {
-        Counter count = counters.get(speciesClass);
-        if(count == null) {
-            // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(speciesClass.getName());
-            counters.put(speciesClass, count);
-        }
-        count.increment();
+        getCounter(speciesClass).increment();
     }
 
     /**
@@ -110,48 +103,78 @@ public class FieldStats
     }
     
     /**
-     * Generate counts of the number of all species.
-     * These are not kept up to date as species
-     * are placed in the field, but only when a request
-     * is made for the information.
+     * Update the counts after the simulation has been reset or has
+     * completed a step. The field keeps its own counts, so this takes
+     * time in proportion to the number of classes, not to the field size.
+     * @param simulation The simulation that has changed.
+     */
+    public void stepCompleted(Simulation simulation)
+    {
+        generateCounts(simulation.getField());
+    }
+    
+    /**
+     * Take the counts of the species alone from the counts kept by the
+     * field.
+     * @param field The field to generate the stats for.
+     */
+    public void countSpecies(Field field)
+    {
+        copyCounts(field, Species.class);
+    }
+    
+    /**
+     * Return the number of infected species in the field, as counted
+     * by the field itself.
+     * @param field The field to generate the stats for.
+     * @return The number of infected species.
+     */
+    public int generateInfectedCount(Field field)
+    {
+        infectedCount = field.getInfectedCount();
+        return infectedCount;
+    }
+    
+    /**
+     * Generate counts of the number of all objects in the field.
      * @param field The field to generate the stats for.
      */
     private void generateCounts(Field field)
+    {
+        copyCounts(field, Object.class);
+    }
+    
+    /**
+     * Replace the counts with those kept by the field, for the classes
+     * of the given kind.
+     * @param field The field to generate the stats for.
+     * @param kind The kind of class to count.
+     */
+    private void copyCounts(Field field, Class<?> kind)
     {
         reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object species = field.getObjectAt(row, col);
-                if(species != null) {
-                    incrementCount(species.getClass());
-                }
+        for(Class type : field.getCountedClasses()) {
+            if(kind.isAssignableFrom(type)) {
+                getCounter(type).setCount(field.getCount(type));
             }
         }
         countsValid = true;
     }
     
     /**
-     * Iterates through the grid space and checks for every
-     * infected species and increments the infected counter
+     * Return the counter for a class, creating it if there is none yet.
+     * @param type The class to count.
+     * @return Its counter.
      */
-    
-    public int generateInfectedCount(Field field)
+    private Counter getCounter(Class type)
     {
-        //reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object species = field.getObjectAt(row, col);
-                if(species != null) {
-                    if (species instanceof River) {}//Do nothing
-                    else{
-                        Species animal = (Species) species;
-                        if(animal.isInfected()) {
-                            infectedCount++;
-                        }
-                    }
-                }
-            }
+        Counter count = counters.get(type);
+        if(count == null) {
+            // We do not have a counter for this class yet.
+            // Create one.
+            count = new Counter(type.getName());
+            counters.put(type, count);
         }
-        return infectedCount++;
+        return count;
     }
 }
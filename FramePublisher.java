@@ -0,0 +1,393 @@
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
+/**
+ * Passes frames of a simulation to a view without holding up the
+ * simulation. After each step the simulation's thread takes a FieldFrame
+ * and leaves it for the Swing event thread, which shows the latest frame
+ * it finds. A frame the view has not got to by the time the next one is
+ * published is dropped, so the simulation runs as fast as it would with
+ * no view, and the view never touches the simulation's state.
+ *
+ * Taking a frame costs little: the code of each location is kept from
+ * frame to frame and only those locations the field reports as changed
+ * (see Field.clearChanges) are looked at again. Along with the codes,
+ * the publisher keeps a count of each code in every BLOCK by BLOCK block
+ * of locations, so a frame of a large field seen from afar is made from
+ * the counts of the blocks rather than from every location. Seen from
+ * afar, a pixel shows the species most common in its block, and only
+ * shows the terrain when there are none.
+ *
+ * A frame only holds the part of the field the view shows (see
+ * Viewport). When the view pans or zooms it asks for a new frame of the
+ * step already published with refresh, so it does not have to wait for
+ * the next step.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class FramePublisher
+{
+    // The number of locations a side in the blocks the codes are counted in.
+    private static final int BLOCK = 8;
+    // The largest frame shown before the view asks for a part of the field.
+    private static final int DEFAULT_FRAME_SIZE = 1024;
+    
+    // The view frames are shown in.
+    private SimulatorView view;
+    // Counts the population for the frames.
+    private FieldStats stats;
+    // The depth and width of the field encoded.
+    private int depth, width;
+    // The code of each location as of the last frame, and the field it
+    // was taken from.
+    private short[] cells;
+    private Field encodedField;
+    // The number of blocks across, the number of codes counted in each,
+    // and the count of each code in each block, block by block.
+    private int blocksWide;
+    private int codeCount;
+    private int[] blockCounts;
+    // The part of the field the view shows, or null for all of it.
+    private volatile Viewport viewport;
+    // The frame taken last.
+    private FieldFrame lastFrame;
+    // The frame waiting to be shown, or null if the view has caught up.
+    private final AtomicReference<FieldFrame> pending;
+    // The number of frames published, and of those dropped unshown.
+    private final AtomicLong published;
+    private final AtomicLong dropped;
+    
+    /**
+     * Create a publisher showing frames in the given view.
+     * @param view The view to show frames in.
+     */
+    public FramePublisher(SimulatorView view)
+    {
+        this.view = view;
+        stats = new FieldStats();
+        pending = new AtomicReference<>();
+        published = new AtomicLong();
+        dropped = new AtomicLong();
+    }
+    
+    /**
+     * Take a frame of the simulation and leave it for the view, replacing
+     * any frame still waiting. Called on the simulation's thread, between
+     * steps.
+     * @param simulation The simulation.
+     * @param emptyColor The colour of open land.
+     * @param river Whether the terrain is on, as shown.
+     * @param delay Whether the delay is on, as shown.
+     */
+    public void publish(Simulation simulation, Color emptyColor, String river, String delay)
+    {
+        offer(takeFrame(simulation.getStep(), simulation.getTime().getTimeOfDay(),
+                        simulation.getWeather().getWeather(), simulation.getField(),
+                        emptyColor, river, delay));
+    }
+    
+    /**
+     * Take a frame of a field, bringing the codes up to date with it.
+     * @param step The step of the simulation.
+     * @param timeOfDay The time of day, as shown.
+     * @param weather The weather, as shown.
+     * @param field The field.
+     * @param emptyColor The colour of open land.
+     * @param river Whether the terrain is on, as shown.
+     * @param delay Whether the delay is on, as shown.
+     * @return The frame.
+     */
+    public synchronized FieldFrame takeFrame(int step, String timeOfDay, String weather,
+                                             Field field, Color emptyColor,
+                                             String river, String delay)
+    {
+        encode(field);
+        stats.countSpecies(field);
+        Viewport shown = getViewport();
+        lastFrame = new FieldFrame(step, timeOfDay, weather, river, delay,
+                                   stats.getPopulationDetails(field), field.getInfectedCount(),
+                                   emptyColor, depth, width, shown, render(shown));
+        return lastFrame;
+    }
+    
+    /**
+     * Leave a new frame of the step published last for the view, showing
+     * the part of the field it now shows. Does nothing if no step has
+     * been published yet.
+     */
+    public synchronized void refresh()
+    {
+        if(lastFrame != null) {
+            Viewport shown = getViewport();
+            lastFrame = lastFrame.reframe(shown, render(shown));
+            offer(lastFrame);
+        }
+    }
+    
+    /**
+     * Set the part of the field the view shows. It is clipped to the
+     * field when frames are taken.
+     * @param shown The part shown, or null for the whole field.
+     */
+    public void setViewport(Viewport shown)
+    {
+        viewport = shown;
+    }
+    
+    /**
+     * @return The number of frames published so far.
+     */
+    public long getPublishedCount()
+    {
+        return published.get();
+    }
+    
+    /**
+     * @return The number of frames replaced before the view showed them.
+     */
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+    
+    /**
+     * Leave a frame for the view, replacing any frame still waiting.
+     */
+    private void offer(FieldFrame frame)
+    {
+        published.incrementAndGet();
+        if(pending.getAndSet(frame) != null) {
+            // The view is still behind; it will show this frame instead.
+            dropped.incrementAndGet();
+        }
+        else {
+            SwingUtilities.invokeLater(this::showPending);
+        }
+    }
+    
+    /**
+     * Show the frame waiting, if any. Called on the Swing event thread.
+     */
+    private void showPending()
+    {
+        FieldFrame frame = pending.getAndSet(null);
+        if(frame != null) {
+            view.showFrame(frame);
+        }
+    }
+    
+    /**
+     * @return The part of the field shown, clipped to the field.
+     */
+    private Viewport getViewport()
+    {
+        Viewport shown = viewport;
+        if(shown == null) {
+            return Viewport.whole(depth, width, DEFAULT_FRAME_SIZE);
+        }
+        int size = shown.getBlockSize();
+        int row = Math.min(shown.getRow(), (depth - 1) / size * size);
+        int col = Math.min(shown.getCol(), (width - 1) / size * size);
+        return new Viewport(row, col, Math.min(shown.getRows(), depth - row),
+                            Math.min(shown.getCols(), width - col), size);
+    }
+    
+    /**
+     * Make the code of each pixel of a frame of the given part of the
+     * field: the code of its location, or, for a block of locations, the
+     * species most common in it (see mostCommon).
+     * @param shown The part of the field shown.
+     * @return The codes.
+     */
+    private short[] render(Viewport shown)
+    {
+        int frameRows = shown.getFrameRows();
+        int frameCols = shown.getFrameCols();
+        int size = shown.getBlockSize();
+        short[] frame = new short[frameRows * frameCols];
+        if(size == 1) {
+            for(int row = 0; row < frameRows; row++) {
+                System.arraycopy(cells, (shown.getRow() + row) * width + shown.getCol(),
+                                 frame, row * frameCols, frameCols);
+            }
+            return frame;
+        }
+        int[] tally = new int[codeCount];
+        int rowEnd = shown.getRow() + shown.getRows();
+        int colEnd = shown.getCol() + shown.getCols();
+        for(int pixelRow = 0; pixelRow < frameRows; pixelRow++) {
+            int top = shown.getRow() + pixelRow * size;
+            int bottom = Math.min(top + size, rowEnd);
+            for(int pixelCol = 0; pixelCol < frameCols; pixelCol++) {
+                int left = shown.getCol() + pixelCol * size;
+                int right = Math.min(left + size, colEnd);
+                Arrays.fill(tally, 0);
+                if(size < BLOCK) {
+                    tallyLocations(tally, top, bottom, left, right);
+                }
+                else {
+                    tallyBlocks(tally, top, bottom, left, right);
+                }
+                frame[pixelRow * frameCols + pixelCol] = mostCommon(tally);
+            }
+        }
+        return frame;
+    }
+    
+    /**
+     * Add the code of each location in a rectangle to a tally.
+     */
+    private void tallyLocations(int[] tally, int top, int bottom, int left, int right)
+    {
+        for(int row = top; row < bottom; row++) {
+            for(int index = row * width + left; index < row * width + right; index++) {
+                tally[cells[index]]++;
+            }
+        }
+    }
+    
+    /**
+     * Add the counts of each block in a rectangle to a tally. The
+     * rectangle starts on a block boundary, its size being a multiple of
+     * BLOCK.
+     */
+    private void tallyBlocks(int[] tally, int top, int bottom, int left, int right)
+    {
+        for(int blockRow = top / BLOCK; blockRow * BLOCK < bottom; blockRow++) {
+            for(int blockCol = left / BLOCK; blockCol * BLOCK < right; blockCol++) {
+                int start = (blockRow * blocksWide + blockCol) * codeCount;
+                for(int code = 0; code < codeCount; code++) {
+                    tally[code] += blockCounts[start + code];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Return the code a block of locations is shown by: the species with
+     * the highest count in its tally, or, if there are none, the kind of
+     * terrain with the highest count. Species are far fewer than the empty
+     * locations around them, so taking the most common code of any kind
+     * would hide them all once a block is more than a few locations wide.
+     * The lowest code wins a tie.
+     * @param tally The count of each code in the block.
+     * @return The code.
+     */
+    private static short mostCommon(int[] tally)
+    {
+        int species = Terrain.getKindCount();
+        int best = species;
+        for(int code = species + 1; code < tally.length; code++) {
+            if(tally[code] > tally[best]) {
+                best = code;
+            }
+        }
+        if(best < tally.length && tally[best] > 0) {
+            return (short) best;
+        }
+        best = 0;
+        for(int code = 1; code < species; code++) {
+            if(tally[code] > tally[best]) {
+                best = code;
+            }
+        }
+        return (short) best;
+    }
+    
+    /**
+     * Bring the code of each location, and the block counts, up to date
+     * with the field: every location if it is not the field encoded last
+     * or has been emptied, otherwise only those that changed.
+     * @param field The field.
+     */
+    private void encode(Field field)
+    {
+        if(cells == null || field.getDepth() != depth || field.getWidth() != width) {
+            depth = field.getDepth();
+            width = field.getWidth();
+            cells = new short[depth * width];
+            countBlocks(Terrain.getKindCount() + Species.getTypeCount());
+            encodedField = null;
+        }
+        if(field != encodedField || field.isAllChanged()) {
+            for(int index = 0; index < cells.length; index++) {
+                update(field, index);
+            }
+        }
+        else {
+            for(int row = 0; row < depth; row++) {
+                if(field.isRowChanged(row)) {
+                    int end = (row + 1) * width;
+                    for(int index = row * width; index < end; index++) {
+                        if(field.isChanged(index)) {
+                            update(field, index);
+                        }
+                    }
+                }
+            }
+        }
+        field.clearChanges();
+        encodedField = field;
+    }
+    
+    /**
+     * Bring the code of one location, and the count of its block, up to
+     * date with the field.
+     */
+    private void update(Field field, int index)
+    {
+        short code = codeAt(field, index);
+        short old = cells[index];
+        if(code != old) {
+            if(code >= codeCount) {
+                // A new type of species; make room to count it.
+                cells[index] = code;
+                countBlocks(Terrain.getKindCount() + Species.getTypeCount());
+                return;
+            }
+            int start = blockOf(index) * codeCount;
+            blockCounts[start + old]--;
+            blockCounts[start + code]++;
+            cells[index] = code;
+        }
+    }
+    
+    /**
+     * Count the codes in every block afresh, with room for the given
+     * number of codes.
+     */
+    private void countBlocks(int codes)
+    {
+        codeCount = codes;
+        blocksWide = (width + BLOCK - 1) / BLOCK;
+        int blocksDeep = (depth + BLOCK - 1) / BLOCK;
+        blockCounts = new int[blocksDeep * blocksWide * codeCount];
+        for(int index = 0; index < cells.length; index++) {
+            blockCounts[blockOf(index) * codeCount + cells[index]]++;
+        }
+    }
+    
+    /**
+     * @return The block a location lies in.
+     */
+    private int blockOf(int index)
+    {
+        return (index / width) / BLOCK * blocksWide + (index % width) / BLOCK;
+    }
+    
+    /**
+     * @return The code of a location (see FieldFrame).
+     */
+    private static short codeAt(Field field, int index)
+    {
+        Object occupant = field.getObjectAt(index);
+        if(occupant instanceof Species) {
+            return FieldFrame.speciesCode(((Species) occupant).getTypeId());
+        }
+        return (short) field.getTerrain().kindAt(index);
+    }
+}
@@ -1,6 +1,5 @@
 import java.util.List;
 import java.util.Random;
-import java.util.Iterator;
 
 /**
  * A simple model of a gnome;
@@ -27,8 +26,6 @@ public class Gnome extends Species
     private static final int FAEGRASS_FOOD_VALUE = 20;
     //The max a gnome can eat before it is full
     private static final int MAX_HUNGER = 80;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
     //Flag for whether the animal is nocturnal
     private static final boolean isNocturnal = true;
     
@@ -50,6 +47,7 @@ public class Gnome extends Species
     public Gnome(boolean randomAge, Field field, Location location)
     {
         super(field, location, isNocturnal);
+        Random rand = Randomizer.getRandom();
         this.isFemale = isFemale;
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
@@ -76,7 +74,7 @@ public class Gnome extends Species
             Location newLocation = findFood();
             if(newLocation == null) { 
                 // No food found - try to move to a free location.
-                newLocation = getField().freeAdjacentLocation(getLocation());
+                newLocation = freeAdjacentLocation();
             }
             // See if it was possible to move.
             if(newLocation != null) {
@@ -89,6 +87,35 @@ public class Gnome extends Species
         }
     }
 
+    /**
+     * Plan the gnome's step without changing the field: it ages, gets
+     * hungrier, may breed, eats every adjacent species it can and moves.
+     * @param intent The intent to record the plans in.
+     */
+    public void plan(Intent intent)
+    {
+        age++;
+        foodLevel--;
+        if(age > MAX_AGE || foodLevel <= 0) {
+            intent.die();
+            return;
+        }
+        int free = planBirths(intent, breed());
+        planFood(intent);
+        planMove(intent, free);
+    }
+    
+    /**
+     * Create a newly born gnome.
+     * @param field The field the new gnome lives in.
+     * @param location The location of the new gnome.
+     * @return The new gnome.
+     */
+    protected Species createYoung(Field field, Location location)
+    {
+        return new Gnome(true, field, location);
+    }
+
     /**
      * Increase the age.
      * This could result in the gnome's death.
@@ -120,16 +147,18 @@ public class Gnome extends Species
     private void giveBirth(List<Species> newGnomes)
     {
         // New gnomes are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Get a mask of the adjacent free locations.
         Random rand = Randomizer.getRandom();
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        Location location = getLocation();
+        int free = freeNeighbourMask(location);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
+        for(int b = 0; b < births && free != 0; b++) {
+            int direction = field.randomDirection(free);
+            free &= ~(1 << direction);
+            Location loc = field.adjacentLocation(location, direction);
             
-            Gnome young = new Gnome(true, field, loc);
-            newGnomes.add(young);
+            newGnomes.add(createYoung(field, loc));
         }
     }
         
@@ -142,29 +171,53 @@ public class Gnome extends Species
     private Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
         Location faegrassLocation = null;
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object species = field.getObjectAt(where);
-            if(species instanceof Faegrass ) {
-                Faegrass faegrass = (Faegrass) species;
-                if(faegrass.isAlive()) { 
-                    faegrass.setDead();
-                    if(foodLevel+FAEGRASS_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += FAEGRASS_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    faegrassLocation = where;
-                }
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object species = field.getNeighbourAt(location, adjacent, i);
+            if(canEat(species) && canEnter(field.neighbourLocation(location, adjacent, i))) {
+                eat((Species) species);
+                faegrassLocation = field.neighbourLocation(location, adjacent, i);
             }
         }
         return faegrassLocation;
     }
     
+    /**
+     * Check whether this gnome eats the given species.
+     * @param other The species to check.
+     * @return true if it is alive and food for a gnome.
+     */
+    protected boolean canEat(Object other)
+    {
+        return (other instanceof Faegrass) && ((Species) other).isAlive();
+    }
+    
+    /**
+     * Eat the given species.
+     * @param prey The species to eat, which must be alive.
+     */
+    protected void eat(Species prey)
+    {
+        prey.setDead();
+        gainFood(FAEGRASS_FOOD_VALUE);
+    }
+    
+    /**
+     * Increase the food level, up to the maximum.
+     * @param foodValue The food value of the species eaten.
+     */
+    private void gainFood(int foodValue)
+    {
+        if(foodLevel+foodValue <= MAX_HUNGER) {
+            foodLevel += foodValue;
+        }
+        else {
+            foodLevel = MAX_HUNGER;
+        }
+    }
+    
     /**
      * Generate a number representing the number of births,
      * if it can breed.
@@ -172,6 +225,7 @@ public class Gnome extends Species
      */
     private int breed()
     {
+        Random rand = Randomizer.getRandom();
         int births = 0;
         if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
             births = rand.nextInt(MAX_LITTER_SIZE) + 1;
@@ -194,11 +248,10 @@ public class Gnome extends Species
     private boolean hasMate()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object animal = field.getNeighbourAt(location, adjacent, i);
             if(animal instanceof Gnome) {
                 Gnome gnome = (Gnome) animal;
                 if(gnome.gender()!=this.gender()) {
@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -35,8 +34,6 @@ public class Grendle extends Species
     private static final int MAX_HUNGER = 70;
     //The probability a grendle will become infected when eating an infected fairy.
     private static final double DISEASE_PROBABILITY = 0.9;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
     //This species only acts at night.
     private static final boolean isNocturnal = true;
     // Individual characteristics (instance fields).
@@ -58,6 +55,7 @@ public class Grendle extends Species
     public Grendle(boolean randomAge, Field field, Location location)
     {
         super(field, location, isNocturnal);
+        Random rand = Randomizer.getRandom();
         this.isFemale = isFemale;
         this.hungerLoss = 1;
         if(randomAge) {
@@ -87,7 +85,7 @@ public class Grendle extends Species
             Location newLocation = findFood();
             if(newLocation == null) { 
                 // No food found - try to move to a free location.
-                newLocation = getField().freeAdjacentLocation(getLocation());
+                newLocation = freeAdjacentLocation();
             }
             // See if it was possible to move.
             if(newLocation != null) {
@@ -100,6 +98,40 @@ public class Grendle extends Species
         }
     }
 
+    /**
+     * Plan the grendle's step without changing the field: it ages, gets
+     * hungrier, may breed, eats every adjacent species it can and moves.
+     * @param intent The intent to record the plans in.
+     */
+    public void plan(Intent intent)
+    {
+        age++;
+        foodLevel = foodLevel - hungerLoss;
+        if(age > MAX_AGE || foodLevel <= 0) {
+            intent.die();
+            return;
+        }
+        int free = planBirths(intent, breed());
+        planFood(intent);
+        planMove(intent, free);
+    }
+    
+    /**
+     * Create a newly born grendle.
+     * @param field The field the new grendle lives in.
+     * @param location The location of the new grendle.
+     * @return The new grendle.
+     */
+    protected Species createYoung(Field field, Location location)
+    {
+        Random rand = Randomizer.getRandom();
+        Grendle young = new Grendle(true, field, location);
+        if(rand.nextDouble() <= DISEASE_PROBABILITY) {
+            young.toggleInfection();
+        }
+        return young;
+    }
+
     /**
      * Increase the age. This could result in the grendle's death.
      */
@@ -140,58 +172,67 @@ public class Grendle extends Species
     private Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
         Location foodLocation = null;
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object species = field.getObjectAt(where);
-            if(species instanceof Fairy ) {
-                Fairy fairy = (Fairy) species;
-                if(fairy.isAlive()) { 
-                    fairy.setDead();
-                    if(foodLevel+FAIRY_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += FAIRY_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                    if(fairy.isInfected() && rand.nextDouble() <= DISEASE_PROBABILITY){
-                        toggleInfection();
-                        diseaseEffect();
-                    }
-                }
-            }
-            else if(species instanceof Unicorn) {
-                Unicorn unicorn = (Unicorn) species;
-                if(unicorn.isAlive()) { 
-                    unicorn.setDead();
-                    if(foodLevel+UNICORN_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += UNICORN_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
-            }
-            else if(species instanceof Daemon) {
-                Daemon daemon = (Daemon) species;
-                if(daemon.isAlive()) { 
-                    daemon.setDead();
-                    if(foodLevel+DAEMON_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += DAEMON_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object species = field.getNeighbourAt(location, adjacent, i);
+            if(canEat(species) && canEnter(field.neighbourLocation(location, adjacent, i))) {
+                eat((Species) species);
+                foodLocation = field.neighbourLocation(location, adjacent, i);
             }
         }
         return foodLocation;
     }
+    
+    /**
+     * Check whether this grendle eats the given species.
+     * @param other The species to check.
+     * @return true if it is alive and food for a grendle.
+     */
+    protected boolean canEat(Object other)
+    {
+        return (other instanceof Fairy ||
+                other instanceof Unicorn ||
+                other instanceof Daemon) && ((Species) other).isAlive();
+    }
+    
+    /**
+     * Eat the given species.
+     * @param prey The species to eat, which must be alive.
+     */
+    protected void eat(Species prey)
+    {
+        Random rand = Randomizer.getRandom();
+        prey.setDead();
+        if(prey instanceof Fairy) {
+            gainFood(FAIRY_FOOD_VALUE);
+            if(((Fairy) prey).isInfected() && rand.nextDouble() <= DISEASE_PROBABILITY){
+                toggleInfection();
+                diseaseEffect();
+            }
+        }
+        else if(prey instanceof Unicorn) {
+            gainFood(UNICORN_FOOD_VALUE);
+        }
+        else if(prey instanceof Daemon) {
+            gainFood(DAEMON_FOOD_VALUE);
+        }
+    }
+    
+    /**
+     * Increase the food level, up to the maximum.
+     * @param foodValue The food value of the species eaten.
+     */
+    private void gainFood(int foodValue)
+    {
+        if(foodLevel+foodValue <= MAX_HUNGER) {
+            foodLevel += foodValue;
+        }
+        else {
+            foodLevel = MAX_HUNGER;
+        }
+    }
         
     /**
      * Check whether or not this grendle is to give birth at this step.
@@ -202,17 +243,16 @@ public class Grendle extends Species
     private void giveBirth(List<Species> newGrendlees)
     {
         // New grendlees are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Get a mask of the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        Location location = getLocation();
+        int free = freeNeighbourMask(location);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Grendle young = new Grendle(true, field, loc);
-            if(rand.nextDouble() <= DISEASE_PROBABILITY){
-                young.toggleInfection();
-            }
-            newGrendlees.add(young);
+        for(int b = 0; b < births && free != 0; b++) {
+            int direction = field.randomDirection(free);
+            free &= ~(1 << direction);
+            Location loc = field.adjacentLocation(location, direction);
+            newGrendlees.add(createYoung(field, loc));
         }
     }
         
@@ -224,6 +264,7 @@ public class Grendle extends Species
      */
     private int breed()
     {
+        Random rand = Randomizer.getRandom();
         int births = 0;
         if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
             births = rand.nextInt(MAX_LITTER_SIZE) + 1;
@@ -245,11 +286,10 @@ public class Grendle extends Species
     private boolean hasMate()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object animal = field.getNeighbourAt(location, adjacent, i);
             if(animal instanceof Grendle) {
                 Grendle grendle = (Grendle) animal;
                 if(grendle.gender()!=this.gender()) {
@@ -0,0 +1,202 @@
+
+/**
+ * What a species plans to do in one step of a double-buffered simulation
+ * (see BufferedStep). While planning, species only look at the field;
+ * the changes they want are recorded here as directions relative to their
+ * own location (see Field.adjacentLocation) and are carried out later,
+ * in the commit phase.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class Intent
+{
+    // Whether the species does nothing at all this step.
+    private boolean idle;
+    // Whether the species dies before carrying out anything else.
+    private boolean dying;
+    // Whether the species dies after carrying out its plans.
+    private boolean dyingAfterwards;
+    // Whether the species' infection is toggled.
+    private boolean togglingInfection;
+    // Directions of the neighbours to eat, three bits each, in the order
+    // they are eaten in.
+    private int eatDirections;
+    // The number of neighbours to eat.
+    private int eatCount;
+    // Directions of the free locations to give birth into.
+    private int birthMask;
+    // Direction of the free location to move to if no food is eaten, or -1.
+    private int moveDirection;
+    // Whether the species dies of overcrowding if it can neither eat nor move.
+    private boolean moveNeeded;
+    
+    /**
+     * Create an empty intent.
+     */
+    public Intent()
+    {
+        reset();
+    }
+    
+    /**
+     * Forget all plans, ready for the next step.
+     */
+    public void reset()
+    {
+        idle = false;
+        dying = false;
+        dyingAfterwards = false;
+        togglingInfection = false;
+        eatDirections = 0;
+        eatCount = 0;
+        birthMask = 0;
+        moveDirection = -1;
+        moveNeeded = false;
+    }
+    
+    /**
+     * The species does nothing this step and stays where it is.
+     */
+    public void idle()
+    {
+        idle = true;
+    }
+    
+    /**
+     * The species dies (e.g. of age or hunger) before doing anything else.
+     */
+    public void die()
+    {
+        dying = true;
+    }
+    
+    /**
+     * The species dies (e.g. in bad weather) after doing everything else.
+     */
+    public void dieAfterwards()
+    {
+        dyingAfterwards = true;
+    }
+    
+    /**
+     * The species' infection is toggled.
+     */
+    public void toggleInfection()
+    {
+        togglingInfection = true;
+    }
+    
+    /**
+     * The species eats its neighbour in the given direction, if it is
+     * still alive by then, after the neighbours it planned to eat before.
+     * If it eats anything, it moves to the last neighbour it ate.
+     * @param direction The direction of the neighbour.
+     */
+    public void eat(int direction)
+    {
+        eatDirections |= direction << (eatCount * 3);
+        eatCount++;
+    }
+    
+    /**
+     * The species gives birth into the free location in the given
+     * direction, if nobody has taken it by then.
+     * @param direction The direction of the location.
+     */
+    public void giveBirth(int direction)
+    {
+        birthMask |= 1 << direction;
+    }
+    
+    /**
+     * The species moves to the free location in the given direction if
+     * it eats nothing and nobody has taken the location by then.
+     * @param direction The direction of the location.
+     */
+    public void moveTo(int direction)
+    {
+        moveDirection = direction;
+    }
+    
+    /**
+     * The species dies of overcrowding if it has nowhere to move to.
+     */
+    public void mustMove()
+    {
+        moveNeeded = true;
+    }
+    
+    /**
+     * @return true if the species does nothing this step.
+     */
+    public boolean isIdle()
+    {
+        return idle;
+    }
+    
+    /**
+     * @return true if the species dies before doing anything else.
+     */
+    public boolean isDying()
+    {
+        return dying;
+    }
+    
+    /**
+     * @return true if the species dies after doing everything else.
+     */
+    public boolean isDyingAfterwards()
+    {
+        return dyingAfterwards;
+    }
+    
+    /**
+     * @return true if the species' infection is toggled.
+     */
+    public boolean isTogglingInfection()
+    {
+        return togglingInfection;
+    }
+    
+    /**
+     * @return The number of neighbours to eat.
+     */
+    public int getEatCount()
+    {
+        return eatCount;
+    }
+    
+    /**
+     * @param i Which neighbour, from 0 to getEatCount - 1.
+     * @return The direction of the i'th neighbour to eat.
+     */
+    public int getEatDirection(int i)
+    {
+        return (eatDirections >>> (i * 3)) & 7;
+    }
+    
+    /**
+     * @return The mask of directions to give birth into.
+     */
+    public int getBirthMask()
+    {
+        return birthMask;
+    }
+    
+    /**
+     * @return The direction to move in if no food is eaten, or -1.
+     */
+    public int getMoveDirection()
+    {
+        return moveDirection;
+    }
+    
+    /**
+     * @return true if the species dies when it has nowhere to move to.
+     */
+    public boolean isMoveNeeded()
+    {
+        return moveNeeded;
+    }
+}
@@ -0,0 +1,27 @@
+
+/**
+ * Model of a lake, taking up grid space and only allowing certain animals
+ * to pass through it. Lakes are deeper than rivers, so fewer can cross them.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class Lake extends BiomeFeature
+{
+    /**
+     * Constructor for objects of class Lake
+     */
+    public Lake()
+    {
+        super();
+        initialiseAnimalMovement();
+    }
+    
+    /**
+     * Allows certain species to pass through grid space occupied by Lake.
+     */
+    private void initialiseAnimalMovement()
+    {
+        canMoveThrough.add(Daemon.class);
+    }
+}
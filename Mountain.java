@@ -0,0 +1,28 @@
+
+/**
+ * Model of a mountain, taking up grid space and only allowing certain
+ * animals to climb over it.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class Mountain extends BiomeFeature
+{
+    /**
+     * Constructor for objects of class Mountain
+     */
+    public Mountain()
+    {
+        super();
+        initialiseAnimalMovement();
+    }
+    
+    /**
+     * Allows certain species to pass through grid space occupied by Mountain.
+     */
+    private void initialiseAnimalMovement()
+    {
+        canMoveThrough.add(Titan.class);
+        canMoveThrough.add(Gnome.class);
+    }
+}
@@ -0,0 +1,23 @@
+
+/**
+ * Something that can occupy a location in a field, such as a species or
+ * a biome feature. The field refers to its occupants by the handle they
+ * are given when first placed (see SlotMap), which they keep for the
+ * field to find them by.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public interface Occupant
+{
+    /**
+     * @return The handle of this occupant, or SlotMap.NONE if it has none.
+     */
+    int getHandle();
+    
+    /**
+     * Give this occupant its handle.
+     * @param handle The handle.
+     */
+    void setHandle(int handle);
+}
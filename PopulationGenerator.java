@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills a field with a random starting population.
+ *
+ * Each location gets at most one species, chosen with a single random
+ * number against the cumulative chances of the species. The chances are
+ * those of trying each species in turn with its own creation probability,
+ * as the simulation used to, so the mix of species is the same. Occupied
+ * locations are left as they are, and a species is only placed on terrain
+ * it may enter, so a river only holds species that can swim it.
+ *
+ * The kinds of species are drawn for the rows in parallel. Each row
+ * draws from its own stream, keyed by the seed and the row (see
+ * SplitRandom.seedFor), so the same seed always gives the same population
+ * however the rows are shared out between threads. The species are then
+ * created in one pass, as placing each in the field takes a lock that
+ * the rows would otherwise contend for; their random ages come from a
+ * second stream per row.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class PopulationGenerator
+{
+    // The probability that each kind of species would be created at a
+    // location if tried in turn, in the order they are tried.
+    private static final double GRENDLE_CREATION_PROBABILITY = 0.07;
+    private static final double FAIRY_CREATION_PROBABILITY = 0.18;
+    private static final double DAEMON_CREATION_PROBABILITY = 0.07;
+    private static final double FAEGRASS_CREATION_PROBABILITY = 0.1;
+    private static final double UNICORN_CREATION_PROBABILITY = 0.18;
+    private static final double TITAN_CREATION_PROBABILITY = 0.05;
+    private static final double GNOME_CREATION_PROBABILITY = 0.1;
+    // The kinds of species, in the order they are tried.
+    private static final int GRENDLE = 0;
+    private static final int FAIRY = 1;
+    private static final int DAEMON = 2;
+    private static final int FAEGRASS = 3;
+    private static final int UNICORN = 4;
+    private static final int TITAN = 5;
+    private static final int GNOME = 6;
+    // The class of each kind of species.
+    private static final Class[] CLASSES = {
+        Grendle.class, Fairy.class, Daemon.class, Faegrass.class,
+        Unicorn.class, Titan.class, Gnome.class,
+    };
+    // The kind drawn for a location left empty.
+    private static final byte EMPTY = -1;
+    // The key telling apart the streams of the ages from those of the kinds.
+    private static final long AGE_KEY = 1;
+    // The number of rows drawn by one task before it is split.
+    private static final int ROWS_PER_TASK = 16;
+    
+    // The chance that a location holds one of the first i + 1 kinds.
+    private static final double[] CUMULATIVE = cumulativeChances(
+        GRENDLE_CREATION_PROBABILITY, FAIRY_CREATION_PROBABILITY,
+        DAEMON_CREATION_PROBABILITY, FAEGRASS_CREATION_PROBABILITY,
+        UNICORN_CREATION_PROBABILITY, TITAN_CREATION_PROBABILITY,
+        GNOME_CREATION_PROBABILITY);
+    
+    // The field being filled.
+    private Field field;
+    // The seed of the row streams.
+    private long seed;
+    // The kind drawn for each location, or EMPTY.
+    private byte[] kinds;
+    // The passability mask of each kind of species (see Terrain).
+    private int[] passable;
+    
+    /**
+     * Create a generator filling the given field.
+     * @param field The field to fill.
+     */
+    public PopulationGenerator(Field field)
+    {
+        this.field = field;
+        passable = new int[CLASSES.length];
+        for(int kind = 0; kind < CLASSES.length; kind++) {
+            passable[kind] = Terrain.passableMask(CLASSES[kind]);
+        }
+    }
+    
+    /**
+     * Fill the empty locations of the field with species, with chances
+     * given by the creation probabilities.
+     * @param seed The seed of the population.
+     * @return The species created, row by row.
+     */
+    public List<Species> populate(long seed)
+    {
+        this.seed = seed;
+        kinds = new byte[field.getSize()];
+        ForkJoinPool.commonPool().invoke(new RowTask(0, field.getDepth()));
+        List<Species> species = new ArrayList<>();
+        SplitRandom stream = new SplitRandom(seed);
+        Randomizer.setThreadRandom(stream);
+        try {
+            for(int row = 0; row < field.getDepth(); row++) {
+                stream.setSeed(SplitRandom.seedFor(seed + AGE_KEY, row));
+                for(int col = 0; col < field.getWidth(); col++) {
+                    int index = field.indexOf(row, col);
+                    if(kinds[index] != EMPTY) {
+                        species.add(create(kinds[index], field.locationAt(index)));
+                    }
+                }
+            }
+        }
+        finally {
+            Randomizer.setThreadRandom(null);
+        }
+        kinds = null;
+        return species;
+    }
+    
+    /**
+     * Draw the kinds of species for one row of the field, without
+     * changing the field.
+     * @param row The row to draw for.
+     * @param rand The stream of the row.
+     */
+    private void drawRow(int row, Random rand)
+    {
+        for(int col = 0; col < field.getWidth(); col++) {
+            int index = field.indexOf(row, col);
+            kinds[index] = EMPTY;
+            if(field.getObjectAt(index) != null) {
+                continue;
+            }
+            double draw = rand.nextDouble();
+            int kind = 0;
+            while(kind < CUMULATIVE.length && draw >= CUMULATIVE[kind]) {
+                kind++;
+            }
+            if(kind < CUMULATIVE.length && field.canEnter(index, passable[kind])) {
+                kinds[index] = (byte) kind;
+            }
+            // else leave the location empty.
+        }
+    }
+    
+    /**
+     * Create a species of a random age.
+     * @param kind The kind of species.
+     * @param location Its location in the field.
+     * @return The new species.
+     */
+    private Species create(int kind, Location location)
+    {
+        switch(kind) {
+            case GRENDLE:
+                return new Grendle(true, field, location);
+            case FAIRY:
+                return new Fairy(true, field, location);
+            case DAEMON:
+                return new Daemon(true, field, location);
+            case FAEGRASS:
+                return new Faegrass(true, field, location);
+            case UNICORN:
+                return new Unicorn(true, field, location);
+            case TITAN:
+                return new Titan(true, field, location);
+            default:
+                return new Gnome(true, field, location);
+        }
+    }
+    
+    /**
+     * Return the cumulative chances of species tried in turn, each
+     * created with its own probability if none before it was.
+     * @param probabilities The creation probabilities, in order.
+     * @return The chance that one of the first i + 1 is created.
+     */
+    private static double[] cumulativeChances(double... probabilities)
+    {
+        double[] cumulative = new double[probabilities.length];
+        double none = 1;
+        for(int kind = 0; kind < probabilities.length; kind++) {
+            none *= 1 - probabilities[kind];
+            cumulative[kind] = 1 - none;
+        }
+        return cumulative;
+    }
+    
+    /**
+     * Draws the kinds for a range of rows, splitting it between threads
+     * when it is long.
+     */
+    private class RowTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+    
+        // The range of rows to draw for.
+        private int from, to;
+    
+        /**
+         * Create a task drawing for the rows from from up to, but not
+         * including, to.
+         */
+        public RowTask(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+    
+        /**
+         * Draw for the range, or split it in two.
+         */
+        protected void compute()
+        {
+            if(to - from > ROWS_PER_TASK) {
+                int middle = (from + to) / 2;
+                invokeAll(new RowTask(from, middle), new RowTask(middle, to));
+                return;
+            }
+            SplitRandom stream = new SplitRandom(seed);
+            for(int row = from; row < to; row++) {
+                stream.setSeed(SplitRandom.seedFor(seed, row));
+                drawRow(row, stream);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+import java.util.Arrays;
+
+/**
+ * The population of each species, and the number infected, after every
+ * step of a simulation, for a chart to plot.
+ *
+ * Each series is a ring buffer of ints with room for a fixed number of
+ * steps, allocated once, so recording a step allocates nothing and a
+ * long run neither grows the memory used nor makes work for the garbage
+ * collector; once a buffer is full the oldest steps are overwritten. A
+ * chart does not draw every step: decimate boils the steps down to as many
+ * columns as it has pixels, giving the lowest and highest value in each.
+ *
+ * So that decimating costs the same however many steps are held, each
+ * series also keeps the lowest and highest value of every aligned block
+ * of 16, 32, 64 and so on up to all of its steps, brought up to date as
+ * each step is recorded. A column is made of the largest blocks that fit
+ * in it, with at most a few steps at either end read one by one.
+ *
+ * The history is written by the simulation's thread and read by the
+ * Swing event thread. A step is written before the count of steps is
+ * raised, so a reader only sees steps that are complete. A reader that
+ * falls a whole buffer behind may see a few of the oldest steps already
+ * overwritten, which only shows as a flicker at the left of a chart.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class PopulationHistory implements SimulationObserver
+{
+    // The number of steps held by default: a little over a million.
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    // The series of the number of infected species.
+    public static final int INFECTED = -1;
+    // The smallest blocks kept a lowest and highest value for are
+    // 2 to this power steps long.
+    private static final int FIRST_LEVEL = 4;
+    
+    // The number of steps held, a power of two, less one.
+    private final int mask;
+    // The population of each species type id, per step, or null for
+    // types never seen (see Species.typeIdOf).
+    private volatile Series[] species;
+    // The number of infected species, per step.
+    private final Series infected;
+    // The number of steps recorded since the simulation was reset.
+    private volatile long count;
+    // The step of the simulation recorded last.
+    private volatile int lastStep;
+    // The population of each species type id in the step being recorded.
+    private int[] populations;
+    
+    /**
+     * Create a history holding the default number of steps.
+     */
+    public PopulationHistory()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Create a history holding at least the given number of steps.
+     * @param capacity The number of steps, rounded up to a power of two.
+     */
+    public PopulationHistory(int capacity)
+    {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) * 2;
+        mask = size - 1;
+        species = new Series[0];
+        infected = new Series(size);
+        populations = new int[0];
+    }
+    
+    /**
+     * Record the population after the simulation has been reset or has
+     * completed a step. A reset starts the history again.
+     * @param simulation The simulation that has changed.
+     */
+    public void stepCompleted(Simulation simulation)
+    {
+        if(simulation.getStep() == 0) {
+            count = 0;
+        }
+        Field field = simulation.getField();
+        long sample = count;
+        Series[] series = species;
+        Arrays.fill(populations, 0);
+        for(Class<?> type : field.getCountedClasses()) {
+            if(Species.class.isAssignableFrom(type)) {
+                int id = Species.typeIdOf(type);
+                if(id >= series.length || series[id] == null) {
+                    series = addSeries(id);
+                }
+                populations[id] = field.getCount(type);
+            }
+        }
+        for(int id = 0; id < series.length; id++) {
+            if(series[id] != null) {
+                series[id].record(sample, populations[id]);
+            }
+        }
+        infected.record(sample, field.getInfectedCount());
+        lastStep = simulation.getStep();
+        count = sample + 1;
+    }
+    
+    /**
+     * @return The number of steps held, at most the capacity.
+     */
+    public int getSize()
+    {
+        return (int) Math.min(count, mask + 1);
+    }
+    
+    /**
+     * @return The step of the simulation recorded last.
+     */
+    public int getLastStep()
+    {
+        return lastStep;
+    }
+    
+    /**
+     * @return The number of species type ids with room for a series;
+     *         some of them may have none.
+     */
+    public int getSeriesCount()
+    {
+        return species.length;
+    }
+    
+    /**
+     * @return true if there is a series for the given species type id,
+     *         or for INFECTED.
+     */
+    public boolean hasSeries(int series)
+    {
+        Series[] current = species;
+        return series == INFECTED || (series < current.length && current[series] != null);
+    }
+    
+    /**
+     * Boil a series down to columns, each covering an equal share of the
+     * steps held, oldest first, and give the lowest and highest value in
+     * each. There are never more columns than steps.
+     * @param series A species type id, or INFECTED.
+     * @param columns The number of columns wanted.
+     * @param lows Receives the lowest value in each column.
+     * @param highs Receives the highest value in each column.
+     * @return The number of columns filled, 0 if the series is empty.
+     */
+    public int decimate(int series, int columns, int[] lows, int[] highs)
+    {
+        long recorded = count;
+        int size = (int) Math.min(recorded, mask + 1);
+        Series values = series == INFECTED ? infected : seriesOf(series);
+        if(size == 0 || values == null) {
+            return 0;
+        }
+        columns = Math.min(columns, size);
+        long oldest = recorded - size;
+        for(int column = 0; column < columns; column++) {
+            long from = oldest + (long) size * column / columns;
+            long to = oldest + (long) size * (column + 1) / columns;
+            values.range(from, to, lows, highs, column);
+        }
+        return columns;
+    }
+    
+    /**
+     * @return The series of a species type id, or null if it has none.
+     */
+    private Series seriesOf(int typeId)
+    {
+        Series[] current = species;
+        return typeId < current.length ? current[typeId] : null;
+    }
+    
+    /**
+     * Make room for the series of a new species type id. The series is
+     * allocated once, and is all zeros for the steps before it was seen.
+     * @param typeId The species type id.
+     * @return The series of every type id.
+     */
+    private Series[] addSeries(int typeId)
+    {
+        Series[] series = species;
+        if(typeId >= series.length) {
+            series = Arrays.copyOf(series, typeId + 1);
+        }
+        series[typeId] = new Series(mask + 1);
+        species = series;
+        populations = Arrays.copyOf(populations, series.length);
+        return series;
+    }
+    
+    /**
+     * The value of one series after every step held, and the lowest and
+     * highest value in every aligned block of steps from 2 to the power
+     * FIRST_LEVEL long up to all of them. Steps are numbered from the
+     * reset, and a step or block is kept at its number modulo the length
+     * of its buffer.
+     */
+    private static class Series
+    {
+        // The value after each step.
+        private final int[] values;
+        // The lowest and highest value in each block, by level: the blocks
+        // of level i are 2 to the power (FIRST_LEVEL + i) steps long.
+        private final int[][] lows, highs;
+        
+        /**
+         * Create a series of all zeros.
+         * @param size The number of steps held, a power of two.
+         */
+        public Series(int size)
+        {
+            values = new int[size];
+            int levels = Math.max(0, Integer.numberOfTrailingZeros(size) - FIRST_LEVEL + 1);
+            lows = new int[levels][];
+            highs = new int[levels][];
+            for(int level = 0; level < levels; level++) {
+                lows[level] = new int[size >> (FIRST_LEVEL + level)];
+                highs[level] = new int[size >> (FIRST_LEVEL + level)];
+            }
+        }
+        
+        /**
+         * Record the value after a step, starting a block at every level
+         * the step is the first of.
+         * @param sample The number of the step since the reset.
+         * @param value The value.
+         */
+        public void record(long sample, int value)
+        {
+            values[(int) sample & (values.length - 1)] = value;
+            for(int level = 0; level < lows.length; level++) {
+                int shift = FIRST_LEVEL + level;
+                int block = (int) (sample >>> shift) & (lows[level].length - 1);
+                if((sample & ((1L << shift) - 1)) == 0) {
+                    lows[level][block] = value;
+                    highs[level][block] = value;
+                }
+                else {
+                    lows[level][block] = Math.min(lows[level][block], value);
+                    highs[level][block] = Math.max(highs[level][block], value);
+                }
+            }
+        }
+        
+        /**
+         * Find the lowest and highest value over a range of steps, all of
+         * them held, from the largest blocks that fit in it and the steps
+         * left over at either end.
+         * @param from The first step of the range.
+         * @param to The step after the last of the range.
+         * @param lows Receives the lowest value at the given column.
+         * @param highs Receives the highest value at the given column.
+         * @param column Where to put the values.
+         */
+        public void range(long from, long to, int[] lows, int[] highs, int column)
+        {
+            int low = Integer.MAX_VALUE;
+            int high = Integer.MIN_VALUE;
+            long sample = from;
+            while(sample < to) {
+                int level = largestBlock(sample, to);
+                if(level < 0) {
+                    int value = values[(int) sample & (values.length - 1)];
+                    low = Math.min(low, value);
+                    high = Math.max(high, value);
+                    sample++;
+                }
+                else {
+                    int shift = FIRST_LEVEL + level;
+                    int block = (int) (sample >>> shift) & (this.lows[level].length - 1);
+                    low = Math.min(low, this.lows[level][block]);
+                    high = Math.max(high, this.highs[level][block]);
+                    sample += 1L << shift;
+                }
+            }
+            lows[column] = low;
+            highs[column] = high;
+        }
+        
+        /**
+         * @return The level of the largest block starting at the given
+         *         step and ending by the step to, or -1 if there is none.
+         */
+        private int largestBlock(long sample, long to)
+        {
+            int level = -1;
+            while(level + 1 < lows.length) {
+                long length = 1L << (FIRST_LEVEL + level + 1);
+                if((sample & (length - 1)) != 0 || sample + length > to) {
+                    break;
+                }
+                level++;
+            }
+            return level;
+        }
+    }
+}
@@ -1,52 +1,80 @@
-import java.util.Random;
-
-/**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
- * 'useShared' to false to get different random behaviour every time.
- * 
- * @author David J. Barnes and Michael Kölling
- * @version 2016.02.29
- */
-public class Randomizer
-{
-    // The default seed for control of randomization.
-    private static final int SEED = 1111;
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
-    // Determine whether a shared random generator is to be provided.
-    private static final boolean useShared = true;
-
-    /**
-     * Constructor for objects of class Randomizer
-     */
-    public Randomizer()
-    {
-    }
-
-    /**
-     * Provide a random generator.
-     * @return A random object.
-     */
-    public static Random getRandom()
-    {
-        if(useShared) {
-            return rand;
-        }
-        else {
-            return new Random();
-        }
-    }
-    
-    /**
-     * Reset the randomization.
-     * This will have no effect if randomization is not through
-     * a shared Random generator.
-     */
-    public static void reset()
-    {
-        if(useShared) {
-            rand.setSeed(SEED);
-        }
-    }
-}
+import java.util.Random;
+
+/**
+ * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
+ * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
+ * 'useShared' to false to get different random behaviour every time.
+ * 
+ * A thread may install its own generator (as each tile of a parallel step
+ * does), which getRandom then returns on that thread instead. These are
+ * SplitRandom streams seeded from the shared generator, so a parallel run
+ * is as reproducible as a sequential one and the threads never contend
+ * for the shared generator.
+ * 
+ * @author David J. Barnes and Michael Kölling
+ * @version 2016.02.29
+ */
+public class Randomizer
+{
+    // The default seed for control of randomization.
+    private static final int SEED = 1111;
+    // A shared Random object, if required.
+    private static final Random rand = new Random(SEED);
+    // Determine whether a shared random generator is to be provided.
+    private static final boolean useShared = true;
+    // Generators installed for individual threads, if any.
+    private static final ThreadLocal<Random> threadRandom = new ThreadLocal<>();
+
+    /**
+     * Constructor for objects of class Randomizer
+     */
+    public Randomizer()
+    {
+    }
+
+    /**
+     * Provide a random generator.
+     * @return A random object.
+     */
+    public static Random getRandom()
+    {
+        Random installed = threadRandom.get();
+        if(installed != null) {
+            return installed;
+        }
+        if(useShared) {
+            return rand;
+        }
+        else {
+            return new Random();
+        }
+    }
+    
+    /**
+     * Install a generator to be returned by getRandom on the current
+     * thread only.
+     * @param random The generator to use, or null to go back to the
+     *               normal one.
+     */
+    public static void setThreadRandom(Random random)
+    {
+        if(random != null) {
+            threadRandom.set(random);
+        }
+        else {
+            threadRandom.remove();
+        }
+    }
+    
+    /**
+     * Reset the randomization.
+     * This will have no effect if randomization is not through
+     * a shared Random generator.
+     */
+    public static void reset()
+    {
+        if(useShared) {
+            rand.setSeed(SEED);
+        }
+    }
+}
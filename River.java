@@ -8,16 +8,13 @@
  */
 public class River extends BiomeFeature
 {
-    // instance variables - replace the example below with your own
-
     /**
      * Constructor for objects of class River
      */
-    public River(Field field, Location location)
+    public River()
     {
-        // initialise instance variables
-        super(field, location);
-        setLocation(location);
+        super();
+        initialiseAnimalMovement();
     }
     
       /**
@@ -28,16 +25,4 @@ public class River extends BiomeFeature
         canMoveThrough.add(Daemon.class);
         canMoveThrough.add(Titan.class);
     }
-    
-    /**
-     * Place river object onto a new location on the grid.
-     */
-    protected void setLocation(Location newLocation)
-    {
-        if(location != null) {
-            field.clear(location);
-        }
-        location = newLocation;
-        field.place(this, newLocation);
-    }
 }
@@ -0,0 +1,513 @@
+import java.util.Random;
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * The core of the predator-prey simulation, independent of any view.
+ * A simulation owns the field, the species within it, the weather and
+ * the time of day, and advances them one step at a time.
+ *
+ * Nothing is drawn and no statistics are gathered by the simulation
+ * itself: views and statistics are attached as SimulationObservers, so
+ * a simulation without observers runs headless and its step time is
+ * bounded only by the species logic.
+ *
+ * The species are kept in two schedules, diurnal and nocturnal, and a
+ * step only goes through the one whose species are awake. The other
+ * half of the population is not looked at: it does not age or act
+ * while asleep, and those of it that are eaten in the meantime are
+ * dropped when its schedule next runs.
+ *
+ * By default the species act one after another. setParallelStep lets
+ * them act in parallel, tile by tile (see TiledStep), and setBufferedStep
+ * lets them plan against an unchanging field before their plans are
+ * carried out (see BufferedStep).
+ *
+ * @author David J. Barnes and Michael Kölling
+ *          with Reuben Atendido and Oliver Macpherson
+ * @version 2022.02.21 (4)
+ */
+public class Simulation
+{
+    // Constants representing configuration information for the simulation.
+    // The default width for the grid.
+    public static final int DEFAULT_WIDTH = 300;
+    // The default depth of the grid.
+    public static final int DEFAULT_DEPTH = 300;
+    //The probability a fairy is already infected at creation
+    //Only fairies will have such probability, acting as a vector for the disease.
+    private static final double DISEASE_CREATION_PROBABILITY = 0.7;
+    //probability the weather will be set to rain
+    private static final double RAIN_PROBABILITY = 0.02;
+    //probability the weather will be set to snow
+    private static final double SNOW_PROBABILITY = 0.01;
+    //probabilty the weather will be set to sunny
+    private static final double SUN_PROBABILITY = 0.75;
+    //the seed the terrain is laid out from, unless another is set
+    public static final long DEFAULT_TERRAIN_SEED = 1111;
+    //probability of animal death in adverse weather
+    private static final double WEATHER_DEATH_CHANCE = 0.01;
+    //boolean for whether rivers, lakes and mountains will generate in the simulation
+    private boolean GENERATE_RIVER = true;
+    //The seed of the terrain, and whether the terrain of the field is
+    //laid out for it and for GENERATE_RIVER, so reset can keep it.
+    private long terrainSeed = DEFAULT_TERRAIN_SEED;
+    private boolean terrainLaid;
+    // The species in the field that act by day, and those that act by night.
+    private List<Species> diurnal;
+    private List<Species> nocturnal;
+    // The current state of the field.
+    private Field field;
+    // The current step of the simulation.
+    private int step;
+    //Create an instance of weather
+    private Weather weather;
+    //Create an instance of time
+    private Time time;
+    //The chance that an awake species acts this step, and whether those
+    //that act may die of the weather, worked out once per step.
+    private double actChance;
+    private boolean damaging;
+    //Whether the weather is sampled in bulk (see setBulkSampling), and
+    //whether it is in the current step.
+    private boolean bulkSampling;
+    private boolean samplingInBulk;
+    //Decide in bulk which awake species sit the step out, and which of
+    //those acting die of the weather.
+    private SkipSampler sittingOut;
+    private SkipSampler weatherDeaths;
+    //Observers notified after reset and after every step.
+    private List<SimulationObserver> observers;
+    //Runs the species in parallel tiles, or null to run them one by one.
+    private TiledStep tiledStep;
+    //Runs the species in plan and commit phases, or null.
+    private BufferedStep bufferedStep;
+
+    /**
+     * Construct a simulation field with default size.
+     */
+    public Simulation()
+    {
+        this(DEFAULT_DEPTH, DEFAULT_WIDTH);
+    }
+
+    /**
+     * Create a simulation field with the given size.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     */
+    public Simulation(int depth, int width)
+    {
+        if(width <= 0 || depth <= 0) {
+            System.out.println("The dimensions must be greater than zero.");
+            System.out.println("Using default values.");
+            depth = DEFAULT_DEPTH;
+            width = DEFAULT_WIDTH;
+        }
+
+        diurnal = new ArrayList<>();
+        nocturnal = new ArrayList<>();
+
+        field = new Field(depth, width);
+
+        weather = new Weather();
+        updateWeather();
+
+        sittingOut = new SkipSampler();
+        weatherDeaths = new SkipSampler();
+
+        time = new Time();
+
+        observers = new ArrayList<>();
+
+        // Setup a valid starting point.
+        reset();
+    }
+
+    /**
+     * Register an observer to be notified after reset and after every step.
+     * @param observer The observer to add.
+     */
+    public void addObserver(SimulationObserver observer)
+    {
+        observers.add(observer);
+    }
+
+    /**
+     * Stop notifying the given observer.
+     * @param observer The observer to remove.
+     */
+    public void removeObserver(SimulationObserver observer)
+    {
+        observers.remove(observer);
+    }
+
+    /**
+     * Run the simulation from its current state for the given number of steps
+     * as fast as possible.
+     * Stop before the given number of steps if it ceases to be viable.
+     * @param numSteps The number of steps to run for.
+     */
+    public void simulate(int numSteps)
+    {
+        for(int step = 1; step <= numSteps && isViable(); step++) {
+            simulateOneStep();
+        }
+    }
+
+    /**
+     * Run the simulation from its current state for a single step.
+     * Iterate over the species awake at this time of day, updating
+     * their state.
+     * Time toggles between day and night if the step count is divisible by 2.
+     */
+    public void simulateOneStep()
+    {
+        step++;
+        Random rand = Randomizer.getRandom();
+        //toggle between day and night every 2 steps
+        //This means 1 full day is 4 steps
+        if(step % 2 == 0) {
+            time.toggleDayAndNight();
+        }
+        //toggle weather depending on their probabilities of occurring
+        if(rand.nextDouble() <= RAIN_PROBABILITY) {
+            weather.toggleRain();
+        }
+        else if (rand.nextDouble() <= SNOW_PROBABILITY) {
+            weather.toggleSnow();
+        }
+        else if (rand.nextDouble() <= SUN_PROBABILITY) {
+            weather.toggleSun();
+        }
+        updateWeather();
+        samplingInBulk = bulkSampling && tiledStep == null && bufferedStep == null;
+        if(samplingInBulk) {
+            sittingOut.start(1 - actChance, rand);
+            weatherDeaths.start(damaging ? WEATHER_DEATH_CHANCE : 0, rand);
+        }
+
+        // Newborns are of the same kind as their parents, so they join
+        // the schedule of the species that bore them.
+        List<Species> species = time.getIsDay() ? diurnal : nocturnal;
+        if(tiledStep != null) {
+            tiledStep.step(species, this);
+        }
+        else if(bufferedStep != null) {
+            List<Species> asleep = time.getIsDay() ? nocturnal : diurnal;
+            field = bufferedStep.step(species, asleep, field, this);
+        }
+        else {
+            // Let all species act. Newborns are appended to the end of the
+            // list, after the species acting this step. Each species still
+            // alive after acting is moved down over the dead ones before
+            // it, so the dead are dropped in one pass rather than removed
+            // one by one.
+            int acting = species.size();
+            int kept = 0;
+            for(int i = 0; i < acting; i++) {
+                Species next = species.get(i);
+                actOnce(next, species);
+                if(next.isAlive()) {
+                    species.set(kept++, next);
+                }
+            }
+            // Close the gap between the survivors and the newborns.
+            species.subList(kept, acting).clear();
+        }
+        // Between steps the only handles of removed species are in the
+        // spare buffer of a BufferedStep, which is emptied before it is
+        // read; the species themselves gave theirs up when removed.
+        field.getOccupants().recycleRetired();
+
+        notifyObservers();
+    }
+
+    /**
+     * Let a species act once, if it is still alive and the weather
+     * allows it.
+     * @param species The species to act, which must be awake.
+     * @param newSpecies A list to receive newly born species.
+     */
+    void actOnce(Species species, List<Species> newSpecies)
+    {
+        if(species.isAlive() && mayAct()) {
+            species.act(newSpecies);
+            if(damaging && weatherKills()) {
+                species.setDead();
+            }
+        }
+    }
+
+    /**
+     * Let a species plan its step, if the weather allows it; otherwise
+     * it stays idle. Makes the same random draws as actOnce.
+     * @param species The species to plan, which must be awake.
+     * @param intent The intent to record the plans in.
+     */
+    void planOnce(Species species, Intent intent)
+    {
+        if(mayAct()) {
+            species.plan(intent);
+            if(damaging && weatherKills()) {
+                intent.dieAfterwards();
+            }
+        }
+        else {
+            intent.idle();
+        }
+    }
+    
+    /**
+     * Choose whether the weather is sampled in bulk. Normally a number
+     * is drawn for every awake species in rain or snow, to decide whether
+     * it acts, and for every acting species in hot weather, to decide
+     * whether it dies. In bulk only the species that sit out or die are
+     * drawn for, by skipping over the others (see SkipSampler); the
+     * chances are the same, but the run differs from a normal one with
+     * the same seed. Only the sequential step samples in bulk, as the
+     * parallel steps need a draw per species to be reproducible.
+     * @param bulk true to sample in bulk.
+     */
+    public void setBulkSampling(boolean bulk)
+    {
+        bulkSampling = bulk;
+    }
+    
+    /**
+     * Let the species act in parallel from now on. The field is split
+     * into square tiles which run on the given number of threads.
+     * For a given seed the results depend on the tile size but not on
+     * the number of threads.
+     * @param tileSize The width and depth of a tile.
+     * @param threads The number of threads to use.
+     * @throws IllegalArgumentException if the tile size is below
+     *         TiledStep.MIN_TILE_SIZE; the step is then left as it was.
+     */
+    public void setParallelStep(int tileSize, int threads)
+    {
+        TiledStep step = new TiledStep(field, tileSize, threads);
+        setSequentialStep();
+        tiledStep = step;
+    }
+    
+    /**
+     * Let the species plan their step against an unchanging field and
+     * then carry it out into a second field from now on (see BufferedStep).
+     * For a given seed the results do not depend on the number of threads.
+     * @param threads The number of threads to plan on.
+     */
+    public void setBufferedStep(int threads)
+    {
+        setSequentialStep();
+        bufferedStep = new BufferedStep(field, threads);
+    }
+    
+    /**
+     * Let the species act one after another from now on, as they
+     * do by default.
+     */
+    public void setSequentialStep()
+    {
+        if(tiledStep != null) {
+            tiledStep.shutdown();
+            tiledStep = null;
+        }
+        if(bufferedStep != null) {
+            bufferedStep.shutdown();
+            bufferedStep = null;
+        }
+    }
+    
+    /**
+     * Reset the simulation to a starting position.
+     */
+    public void reset()
+    {
+        step = 0;
+        diurnal.clear();
+        nocturnal.clear();
+        field.clear();
+        // The terrain is laid before the species, which are only placed
+        // where they may enter it. It does not change between runs, so it
+        // is only laid again once its seed or setting changes.
+        if(!terrainLaid) {
+            layTerrain();
+        }
+        populate();
+        notifyObservers();
+    }
+
+    /**
+     * Determine whether the simulation is still viable.
+     * I.e., should it continue to run.
+     * Uses the counts kept by the field, so it does not scan the field.
+     * @return true If there is more than one kind of species alive.
+     */
+    public boolean isViable()
+    {
+        int kinds = 0;
+        for(Class type : field.getCountedClasses()) {
+            if(Species.class.isAssignableFrom(type) && field.getCount(type) > 0) {
+                kinds++;
+            }
+        }
+        return kinds > 1;
+    }
+
+    /**
+     * toggles the GENERATE_RIVER boolean flag between
+     * true and false (on and off).
+     * The grid is immediately reset for the terrain to be generated.
+     */
+    public void toggleRiver()
+    {
+        GENERATE_RIVER = !GENERATE_RIVER;
+        terrainLaid = false;
+        reset();
+    }
+
+    /**
+     * Set the seed the terrain is laid out from. The new terrain is laid
+     * out on the next reset.
+     * @param seed The seed of the terrain.
+     */
+    public void setTerrainSeed(long seed)
+    {
+        if(seed != terrainSeed) {
+            terrainSeed = seed;
+            terrainLaid = false;
+        }
+    }
+
+    /**
+     * @return true if rivers, lakes and mountains are generated in the field.
+     */
+    public boolean isRiverEnabled()
+    {
+        return GENERATE_RIVER;
+    }
+
+    /**
+     * @return The current step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The field of the simulation.
+     */
+    public Field getField()
+    {
+        return field;
+    }
+
+    /**
+     * @return The current weather of the simulation.
+     */
+    public Weather getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return The current time of day of the simulation.
+     */
+    public Time getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Tell every observer that the state of the simulation has changed.
+     */
+    private void notifyObservers()
+    {
+        for(SimulationObserver observer : observers) {
+            observer.stepCompleted(this);
+        }
+    }
+
+    /**
+     * Randomly populate the empty locations of the field with many
+     * different species (see PopulationGenerator).
+     * Now species are created with a flag indicating if it is female
+     */
+    private void populate()
+    {
+        long seed = Randomizer.getRandom().nextLong();
+        for(Species created : new PopulationGenerator(field).populate(seed)) {
+            schedule(created);
+        }
+    }
+
+    /**
+     * Add a new species to the schedule of its time of day.
+     * @param species The species to add.
+     */
+    private void schedule(Species species)
+    {
+        if(species.getIsNocturnal()) {
+            nocturnal.add(species);
+        }
+        else {
+            diurnal.add(species);
+        }
+    }
+
+    /**
+     * Work out from the weather the chance that a species acts this step
+     * and whether it may be killed, and let the species see the weather.
+     */
+    private void updateWeather()
+    {
+        WeatherState state = weather.getState();
+        actChance = state.getActChance();
+        damaging = state.isDamaging();
+        field.setWeather(state);
+    }
+
+    /**
+     * Returns whether an awake species may act this step, given the
+     * weather. In rain and snow only some species act, and if it is both
+     * snowing and raining none do.
+     */
+    private boolean mayAct() {
+        if(actChance >= 1) {
+            return true;
+        }
+        if(samplingInBulk) {
+            return !sittingOut.next(Randomizer.getRandom());
+        }
+        return actChance > 0 && Randomizer.getRandom().nextDouble() <= actChance;
+    }
+
+    /**
+     * Draw whether dangerous weather kills an animal, based on a constant.
+     * @return true if the animal dies
+     */
+    private boolean weatherKills() {
+        Random rand = Randomizer.getRandom();
+        if(samplingInBulk) {
+            return weatherDeaths.next(rand);
+        }
+        return rand.nextDouble() <= WEATHER_DEATH_CHANCE;
+    }
+
+    /**
+     * Lay out the terrain of the field: rivers, lakes and mountains from
+     * the terrain seed, read from the cache if they have been generated
+     * before (see TerrainCache), or open land if GENERATE_RIVER is off.
+     */
+    private void layTerrain()
+    {
+        Terrain terrain = field.getTerrain();
+        terrain.clear();
+        if(GENERATE_RIVER) {
+            TerrainCache.fill(terrain, terrainSeed);
+        }
+        terrainLaid = true;
+    }
+}
@@ -0,0 +1,19 @@
+
+/**
+ * An observer of a running simulation. Observers are notified once the
+ * simulation has been reset and after every completed step, and can then
+ * inspect its state (e.g. to draw it or to collect statistics).
+ * A simulation without observers runs headless.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public interface SimulationObserver
+{
+    /**
+     * Called after the simulation has been reset (step 0) and after
+     * each step has been completed.
+     * @param simulation The simulation that has changed.
+     */
+    void stepCompleted(Simulation simulation);
+}
@@ -1,6 +1,9 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import javax.swing.*;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -10,6 +13,27 @@ import java.util.Map;
  * representing its contents. It uses a default background color.
  * Colors for each type of species can be defined using the
  * setColor method.
+ *
+ * The field is shown in frames (see FieldFrame), each holding a code for
+ * every pixel of the part of the field in view. Their pixels are written
+ * straight into an image, with the colours looked up in one table, and
+ * only the pixels whose codes have changed since the last frame are
+ * written again, unless a colour or the part in view has changed. The
+ * image is scaled up to the window only when it is copied to the screen.
+ *
+ * The view can be zoomed with the mouse wheel, panned by dragging, and
+ * fitted to the window again with a double click. Zoomed far out, each
+ * pixel of a frame covers a block of locations and shows the code most
+ * common in it (see Viewport), so fields much larger than the screen can
+ * be watched.
+ *
+ * Below the field, a chart plots the population of each species over
+ * the run, from a PopulationHistory.
+ *
+ * A running simulation shows its steps through showFrame, on the Swing
+ * event thread, from frames a FramePublisher takes between steps, so
+ * drawing never holds up the simulation. showStatus takes a frame of a
+ * field and shows it on the caller's thread instead.
  * 
  * @author David J. Barnes and Michael Kölling
  *          with Reuben Atendido and Oliver Macpherson
@@ -17,8 +41,13 @@ import java.util.Map;
  */
 public class SimulatorView extends JFrame
 {
+    // The colours of empty locations by day, by night and in between.
+    public static final Color DAY_COLOR = Color.white;
+    public static final Color NIGHT_COLOR = Color.black;
+    public static final Color TRANSITION_COLOR = Color.gray;
+
     // Colors used for empty locations.
-    private Color EMPTY_COLOR = Color.white;
+    private Color EMPTY_COLOR = DAY_COLOR;
 
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
@@ -36,9 +65,15 @@ public class SimulatorView extends JFrame
     private JLabel stepLabel, population, infoLabel, dayLabel, weatherLabel, riverLabel, delayLabel, infectedLabel;
     
     private FieldView fieldView;
+    private ChartView chartView;
     //private Simulator sim;
     // A map for storing colors for participants in the simulation
     private Map<Class, Color> colors;
+    // The RGB colour of each species type id, worked out from colors, or
+    // null when colors has changed since.
+    private int[] speciesColors;
+    // The RGB colour of each kind of terrain, open land being EMPTY_COLOR.
+    private int[] terrainColors;
     // A statistics object computing and storing simulation information
     private FieldStats stats;
     
@@ -67,6 +102,7 @@ public class SimulatorView extends JFrame
         setLocation(100, 50);
         
         fieldView = new FieldView(height, width);
+        chartView = new ChartView();
 
         Container contents = getContentPane();
         
@@ -85,7 +121,11 @@ public class SimulatorView extends JFrame
             infoPaneRight.add(infectedLabel, BorderLayout.CENTER);
             
         contents.add(infoPaneTop, BorderLayout.NORTH);
-        contents.add(infoPaneBottom, BorderLayout.SOUTH);
+        JPanel southPane = new JPanel(new BorderLayout());
+            southPane.add(chartView, BorderLayout.CENTER);
+            southPane.add(infoPaneBottom, BorderLayout.SOUTH);
+            
+        contents.add(southPane, BorderLayout.SOUTH);
         contents.add(infoPaneRight, BorderLayout.EAST);
         contents.add(fieldView, BorderLayout.CENTER);
                    
@@ -101,6 +141,8 @@ public class SimulatorView extends JFrame
     public void setColor(Class speciesClass, Color color)
     {
         colors.put(speciesClass, color);
+        speciesColors = null;
+        terrainColors = null;
     }
 
     /**
@@ -127,7 +169,52 @@ public class SimulatorView extends JFrame
     }
 
     /**
-     * Show the current status of the field.
+     * Return the RGB colour of each species type id, with UNKNOWN_COLOR
+     * for types given no colour. The table is worked out again when a
+     * colour is set or a new type of species has appeared.
+     */
+    private int[] getSpeciesColors()
+    {
+        if(speciesColors == null || speciesColors.length < Species.getTypeCount()) {
+            int[] table = new int[Species.getTypeCount()];
+            Arrays.fill(table, UNKNOWN_COLOR.getRGB());
+            for(Map.Entry<Class, Color> entry : colors.entrySet()) {
+                if(Species.class.isAssignableFrom(entry.getKey())) {
+                    int id = Species.typeIdOf(entry.getKey());
+                    if(id >= table.length) {
+                        table = Arrays.copyOf(table, id + 1);
+                    }
+                    table[id] = entry.getValue().getRGB();
+                }
+            }
+            speciesColors = table;
+        }
+        return speciesColors;
+    }
+
+    /**
+     * Return the RGB colour of each kind of terrain: the colour of its
+     * feature, or EMPTY_COLOR for open land.
+     */
+    private int[] getTerrainColors()
+    {
+        if(terrainColors == null) {
+            terrainColors = new int[Terrain.getKindCount()];
+            for(int kind = 0; kind < terrainColors.length; kind++) {
+                BiomeFeature feature = Terrain.featureOf(kind);
+                if(feature == null) {
+                    terrainColors[kind] = EMPTY_COLOR.getRGB();
+                }
+                else {
+                    terrainColors[kind] = getColor(feature.getClass()).getRGB();
+                }
+            }
+        }
+        return terrainColors;
+    }
+
+    /**
+     * Show the current status of the field, on the caller's thread.
      * @param step Which iteration step it is.
      * @param field The field whose status is to be displayed.
      */
@@ -142,32 +229,57 @@ public class SimulatorView extends JFrame
         weatherLabel.setText(WEATHERLABEL_PREFIX + weather );
         riverLabel.setText(RIVERLABEL_PREFIX + riverString );
         delayLabel.setText(DELAYLABEL_PREFIX + delayString );
-        stats.reset();
-        
-        fieldView.preparePaint();
-
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object species = field.getObjectAt(row, col);
-                 if(species != null) {
-                    if(species instanceof Species) {
-                        stats.incrementCount(species.getClass());
-                        fieldView.drawMark(col, row, getColor(species.getClass()));
-                    }
-                    else if(species instanceof BiomeFeature) {
-                        fieldView.drawMark(col, row, getColor(species.getClass()));
-                    }
-                }
-                else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
-                }
-            }
+        if(fieldView.getPublisher() == null) {
+            setFramePublisher(new FramePublisher(this));
         }
-        stats.countFinished();
-        
-        infectedLabel.setText(INFECTEDLABEL_PREFIX + stats.generateInfectedCount(field));
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
+        showFrame(fieldView.getPublisher().takeFrame(step, timeOfDay, weather, field,
+                                                     EMPTY_COLOR, riverString, delayString));
+    }
+
+    /**
+     * Plot the given history in the chart below the field.
+     * @param history The population history.
+     */
+    public void setPopulationHistory(PopulationHistory history)
+    {
+        chartView.setHistory(history);
+    }
+
+    /**
+     * Ask the given publisher for frames of the part of the field shown,
+     * so that they follow the view as it is panned and zoomed.
+     * @param publisher The publisher of the frames shown.
+     */
+    public void setFramePublisher(FramePublisher publisher)
+    {
+        fieldView.setPublisher(publisher);
+    }
+
+    /**
+     * Show a frame of the simulation. Must be called on the Swing event
+     * thread.
+     * @param frame The frame to show.
+     */
+    public void showFrame(FieldFrame frame)
+    {
+        if(!isVisible()) {
+            setVisible(true);
+        }
+
+        stepLabel.setText(STEP_PREFIX + frame.getStep());
+        dayLabel.setText(DAYLABEL_PREFIX + frame.getTimeOfDay());
+        weatherLabel.setText(WEATHERLABEL_PREFIX + frame.getWeather());
+        riverLabel.setText(RIVERLABEL_PREFIX + frame.getRiver());
+        delayLabel.setText(DELAYLABEL_PREFIX + frame.getDelay());
+        if(!frame.getEmptyColor().equals(EMPTY_COLOR)) {
+            EMPTY_COLOR = frame.getEmptyColor();
+            terrainColors = null;
+        }
+        fieldView.drawFrame(frame);
+        infectedLabel.setText(INFECTEDLABEL_PREFIX + frame.getInfected());
+        population.setText(POPULATION_PREFIX + frame.getPopulation());
         fieldView.repaint();
+        chartView.repaint();
     }
 
     /**
@@ -182,19 +294,22 @@ public class SimulatorView extends JFrame
      * changes empty color field to black
      */
     public void setNightColor() {
-            EMPTY_COLOR = Color.black;
+            EMPTY_COLOR = NIGHT_COLOR;
+            terrainColors = null;
     }
     /**
      * changes empty color field to white
      */
     public void setDayColor() {
-            EMPTY_COLOR = Color.white;
+            EMPTY_COLOR = DAY_COLOR;
+            terrainColors = null;
     }
     /**
      * changes empty color field to gray
      */
     public void setTransitionColor() {
-            EMPTY_COLOR = Color.gray;
+            EMPTY_COLOR = TRANSITION_COLOR;
+            terrainColors = null;
     }
     
     /**
@@ -208,12 +323,34 @@ public class SimulatorView extends JFrame
     private class FieldView extends JPanel
     {
         private final int GRID_VIEW_SCALING_FACTOR = 6;
+        // The largest size the view asks for, in pixels a side.
+        private final int MAX_PREFERRED_SIZE = 900;
+        // How much one click of the mouse wheel zooms in or out.
+        private final double ZOOM_STEP = 1.25;
+        // The most pixels a side a location is drawn with.
+        private final double MAX_PIXELS_PER_CELL = 32;
 
         private int gridWidth, gridHeight;
-        private int xScale, yScale;
-        Dimension size;
-        private Graphics g;
-        private Image fieldImage;
+        // How many pixels a side each location is drawn with, and the
+        // row and column, in fractions of a location, at the top left.
+        private double pixelsPerCell;
+        private double topRow, leftCol;
+        // Whether the whole field is shown, so it is fitted again when
+        // the view is resized.
+        private boolean fitted;
+        // Asked for frames of the part of the field shown.
+        private FramePublisher publisher;
+        // The frame drawn last, one pixel per pixel of the frame, and the
+        // pixels themselves, in row-major order.
+        private BufferedImage frameImage;
+        private int[] pixels;
+        // The frame drawn last, and the colour of each code of a frame
+        // (see FieldFrame).
+        private FieldFrame drawnFrame;
+        private int[] cellColors;
+        // Where the mouse was when a drag started, and the top left then.
+        private Point dragStart;
+        private double dragTopRow, dragLeftCol;
 
         /**
          * Create a new FieldView component.
@@ -222,7 +359,52 @@ public class SimulatorView extends JFrame
         {
             gridHeight = height;
             gridWidth = width;
-            size = new Dimension(0, 0);
+            pixelsPerCell = GRID_VIEW_SCALING_FACTOR;
+            fitted = true;
+            setBackground(Color.lightGray);
+            MouseAdapter mouse = new MouseAdapter() {
+                public void mousePressed(MouseEvent e)
+                {
+                    dragStart = e.getPoint();
+                    dragTopRow = topRow;
+                    dragLeftCol = leftCol;
+                }
+
+                public void mouseDragged(MouseEvent e)
+                {
+                    if(dragStart != null) {
+                        topRow = dragTopRow - (e.getY() - dragStart.y) / pixelsPerCell;
+                        leftCol = dragLeftCol - (e.getX() - dragStart.x) / pixelsPerCell;
+                        fitted = false;
+                        viewportChanged();
+                    }
+                }
+
+                public void mouseClicked(MouseEvent e)
+                {
+                    if(e.getClickCount() == 2) {
+                        fit();
+                        viewportChanged();
+                    }
+                }
+
+                public void mouseWheelMoved(MouseWheelEvent e)
+                {
+                    zoom(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                }
+            };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+            addMouseWheelListener(mouse);
+            addComponentListener(new ComponentAdapter() {
+                public void componentResized(ComponentEvent e)
+                {
+                    if(fitted) {
+                        fit();
+                    }
+                    viewportChanged();
+                }
+            });
         }
 
         /**
@@ -230,57 +412,291 @@ public class SimulatorView extends JFrame
          */
         public Dimension getPreferredSize()
         {
-            return new Dimension(gridWidth * GRID_VIEW_SCALING_FACTOR,
-                                 gridHeight * GRID_VIEW_SCALING_FACTOR);
+            return new Dimension(Math.min(gridWidth * GRID_VIEW_SCALING_FACTOR, MAX_PREFERRED_SIZE),
+                                 Math.min(gridHeight * GRID_VIEW_SCALING_FACTOR, MAX_PREFERRED_SIZE));
+        }
+
+        /**
+         * Ask the given publisher for frames of the part of the field
+         * shown.
+         * @param newPublisher The publisher.
+         */
+        public void setPublisher(FramePublisher newPublisher)
+        {
+            publisher = newPublisher;
+            publisher.setViewport(getViewport());
+        }
+
+        /**
+         * @return The publisher asked for frames, or null if there is none.
+         */
+        public FramePublisher getPublisher()
+        {
+            return publisher;
+        }
+
+        /**
+         * Show the whole field, as large as it fits.
+         */
+        private void fit()
+        {
+            if(getWidth() > 0 && getHeight() > 0) {
+                pixelsPerCell = Math.min((double) getWidth() / gridWidth,
+                                         (double) getHeight() / gridHeight);
+            }
+            topRow = 0;
+            leftCol = 0;
+            fitted = true;
+        }
+
+        /**
+         * Zoom in or out, keeping the location under a point in place.
+         * The view zooms out no further than the whole field fitting.
+         * @param factor How much larger to draw each location.
+         * @param x The x coordinate of the point.
+         * @param y The y coordinate of the point.
+         */
+        private void zoom(double factor, int x, int y)
+        {
+            double smallest = Math.min((double) getWidth() / gridWidth,
+                                       (double) getHeight() / gridHeight);
+            double zoomed = Math.max(smallest, Math.min(MAX_PIXELS_PER_CELL, pixelsPerCell * factor));
+            topRow += y / pixelsPerCell - y / zoomed;
+            leftCol += x / pixelsPerCell - x / zoomed;
+            pixelsPerCell = zoomed;
+            fitted = zoomed == smallest;
+            viewportChanged();
+        }
+
+        /**
+         * Keep the field in view, and ask for a frame of the part now
+         * shown.
+         */
+        private void viewportChanged()
+        {
+            double rowsShown = getHeight() / pixelsPerCell;
+            double colsShown = getWidth() / pixelsPerCell;
+            topRow = Math.max(0, Math.min(topRow, gridHeight - rowsShown));
+            leftCol = Math.max(0, Math.min(leftCol, gridWidth - colsShown));
+            if(publisher != null) {
+                publisher.setViewport(getViewport());
+                publisher.refresh();
+            }
+            repaint();
+        }
+
+        /**
+         * Return the part of the field shown: the locations covering the
+         * component, in blocks of the largest power of two locations a
+         * side that still fit in one pixel.
+         */
+        private Viewport getViewport()
+        {
+            if(getWidth() == 0 || getHeight() == 0) {
+                return Viewport.whole(gridHeight, gridWidth, MAX_PREFERRED_SIZE);
+            }
+            int size = 1;
+            while(size * 2 * pixelsPerCell <= 1) {
+                size *= 2;
+            }
+            int row = (int) topRow / size * size;
+            int col = (int) leftCol / size * size;
+            int rows = (int) Math.ceil(topRow + getHeight() / pixelsPerCell) + 1 - row;
+            int cols = (int) Math.ceil(leftCol + getWidth() / pixelsPerCell) + 1 - col;
+            return new Viewport(row, col, Math.min(rows, gridHeight - row),
+                                Math.min(cols, gridWidth - col), size);
         }
 
         /**
-         * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
+         * Draw the pixels of a frame whose codes differ from those of the
+         * frame drawn last, or all of them if the colours or the part of
+         * the field shown have changed.
+         * @param frame The frame to draw.
          */
-        public void preparePaint()
+        public void drawFrame(FieldFrame frame)
         {
-            if(! size.equals(getSize())) {  // if the size has changed...
-                size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if(xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
+            Viewport shown = frame.getViewport();
+            short[] cells = frame.getCells();
+            int kinds = Terrain.getKindCount();
+            boolean all = drawnFrame == null || !shown.equals(drawnFrame.getViewport())
+                          || speciesColors == null || terrainColors == null
+                          || cellColors.length < kinds + Species.getTypeCount();
+            if(frameImage == null || frameImage.getWidth() != shown.getFrameCols()
+                                  || frameImage.getHeight() != shown.getFrameRows()) {
+                frameImage = new BufferedImage(shown.getFrameCols(), shown.getFrameRows(),
+                                               BufferedImage.TYPE_INT_RGB);
+                pixels = ((DataBufferInt) frameImage.getRaster().getDataBuffer()).getData();
+            }
+            if(all) {
+                int[] species = getSpeciesColors();
+                int[] terrain = getTerrainColors();
+                cellColors = new int[kinds + species.length];
+                System.arraycopy(terrain, 0, cellColors, 0, kinds);
+                System.arraycopy(species, 0, cellColors, kinds, species.length);
+                for(int index = 0; index < pixels.length; index++) {
+                    pixels[index] = cellColors[cells[index]];
                 }
-                yScale = size.height / gridHeight;
-                if(yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
+            }
+            else {
+                short[] drawnCells = drawnFrame.getCells();
+                for(int index = 0; index < pixels.length; index++) {
+                    if(cells[index] != drawnCells[index]) {
+                        pixels[index] = cellColors[cells[index]];
+                    }
                 }
             }
+            drawnFrame = frame;
         }
-        
+
+        /**
+         * The field view component needs to be redisplayed. Copy the
+         * frame drawn last to screen, each of its pixels covering its
+         * block of locations at the current zoom. A frame of a part of the
+         * field no longer in view is drawn where that part now lies.
+         */
+        public void paintComponent(Graphics g)
+        {
+            super.paintComponent(g);
+            if(drawnFrame != null) {
+                Viewport shown = drawnFrame.getViewport();
+                double blockPixels = shown.getBlockSize() * pixelsPerCell;
+                int x = (int) Math.round((shown.getCol() - leftCol) * pixelsPerCell);
+                int y = (int) Math.round((shown.getRow() - topRow) * pixelsPerCell);
+                int width = (int) Math.round(shown.getFrameCols() * blockPixels);
+                int height = (int) Math.round(shown.getFrameRows() * blockPixels);
+                Graphics2D g2 = (Graphics2D) g;
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                                    RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                g2.drawImage(frameImage, x, y, width, height, null);
+            }
+        }
+    }
+
+    /**
+     * A chart of the population of each species, and of the number
+     * infected, over the steps held by a PopulationHistory. Each column
+     * of pixels covers an equal share of the steps, drawn as a bar from
+     * the lowest value to the highest in that share. The history keeps
+     * those values for blocks of steps as they are recorded, so the chart
+     * costs the same to draw however long the run.
+     */
+    private class ChartView extends JPanel
+    {
+        private static final long serialVersionUID = 1L;
+        private final int CHART_HEIGHT = 120;
+        private final Color INFECTED_COLOR = Color.black;
+
+        // The history plotted, or null if there is none.
+        private PopulationHistory history;
+        // The lowest and highest value of each series in each column,
+        // kept from one painting to the next.
+        private int[][] lows, highs;
+
         /**
-         * Paint on grid location on this field in a given color.
+         * Create an empty chart.
          */
-        public void drawMark(int x, int y, Color color)
+        public ChartView()
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
+            setBackground(Color.white);
+            lows = new int[0][];
+            highs = new int[0][];
         }
 
         /**
-         * The field view component needs to be redisplayed. Copy the
-         * internal image to screen.
+         * Tell the GUI manager how big we would like to be.
+         */
+        public Dimension getPreferredSize()
+        {
+            return new Dimension(0, CHART_HEIGHT);
+        }
+
+        /**
+         * Plot the given history.
+         * @param newHistory The history.
+         */
+        public void setHistory(PopulationHistory newHistory)
+        {
+            history = newHistory;
+            repaint();
+        }
+
+        /**
+         * Draw every series, scaled so that the highest value of any of
+         * them reaches the top.
          */
         public void paintComponent(Graphics g)
         {
-            if(fieldImage != null) {
-                Dimension currentSize = getSize();
-                if(size.equals(currentSize)) {
-                    g.drawImage(fieldImage, 0, 0, null);
+            super.paintComponent(g);
+            if(history == null || getWidth() == 0) {
+                return;
+            }
+            int series = history.getSeriesCount() + 1;
+            if(lows.length < series || (series > 0 && lows[0].length < getWidth())) {
+                lows = new int[series][getWidth()];
+                highs = new int[series][getWidth()];
+            }
+            // Series 0 is the infected; series i + 1 is species type id i.
+            int[] columns = new int[series];
+            int top = 1;
+            for(int s = 0; s < series; s++) {
+                int id = s == 0 ? PopulationHistory.INFECTED : s - 1;
+                columns[s] = history.decimate(id, getWidth(), lows[s], highs[s]);
+                for(int column = 0; column < columns[s]; column++) {
+                    top = Math.max(top, highs[s][column]);
+                }
+            }
+            int[] colors = getSpeciesColors();
+            for(int s = 1; s <= series; s++) {
+                // Draw the infected last, over the species.
+                int index = s % series;
+                if(columns[index] > 0) {
+                    if(index == 0) {
+                        g.setColor(INFECTED_COLOR);
+                    }
+                    else {
+                        g.setColor(index - 1 < colors.length ? new Color(colors[index - 1]) : UNKNOWN_COLOR);
+                    }
+                    plot(g, lows[index], highs[index], columns[index], top);
+                }
+            }
+            g.setColor(Color.darkGray);
+            g.drawString(String.valueOf(top), 2, 12);
+            g.drawString("Step " + history.getLastStep(), 2, getHeight() - 3);
+        }
+
+        /**
+         * Draw one series as a bar per column, each bar reaching to the
+         * one before so the line is unbroken.
+         */
+        private void plot(Graphics g, int[] low, int[] high, int columns, int top)
+        {
+            int height = getHeight() - 1;
+            int lastLow = low[0];
+            int lastHigh = high[0];
+            int lastX = 0;
+            for(int column = 0; column < columns; column++) {
+                int x = column * getWidth() / columns;
+                int from = Math.max(high[column], lastLow);
+                int to = Math.min(low[column], lastHigh);
+                if(x > lastX + 1) {
+                    // Fewer steps than pixels: join the points up.
+                    g.drawLine(lastX, y(lastHigh, top, height), x, y(high[column], top, height));
                 }
                 else {
-                    // Rescale the previous image.
-                    g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
+                    g.drawLine(x, y(from, top, height), x, y(to, top, height));
                 }
+                lastLow = low[column];
+                lastHigh = high[column];
+                lastX = x;
             }
         }
+
+        /**
+         * @return The y coordinate of a value, top being at the top.
+         */
+        private int y(int value, int top, int height)
+        {
+            return height - (int) ((long) value * height / top);
+        }
     }
 }
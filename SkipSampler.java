@@ -0,0 +1,79 @@
+import java.util.Random;
+
+/**
+ * Decides which of a run of trials succeed, each with the same
+ * probability, without drawing a random number for every trial. After
+ * each success it draws how many trials fail before the next one, from
+ * the geometric distribution, and lets that many trials fail without
+ * drawing anything. The successes fall exactly as if every trial had
+ * been drawn on its own, but for a small probability, such as a species
+ * dying of the weather, only about one number is drawn per success.
+ *
+ * A sampler is used by one thread at a time.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class SkipSampler
+{
+    // The probability that a trial succeeds.
+    private double probability;
+    // The logarithm of the probability that a trial fails.
+    private double logFailure;
+    // The number of trials left to fail before the next success.
+    private long failures;
+    
+    /**
+     * Create a sampler whose trials never succeed, until it is started.
+     */
+    public SkipSampler()
+    {
+        failures = Long.MAX_VALUE;
+    }
+    
+    /**
+     * Start a new run of trials.
+     * @param probability The probability that each trial succeeds.
+     * @param rand The random generator to draw from.
+     */
+    public void start(double probability, Random rand)
+    {
+        this.probability = probability;
+        logFailure = Math.log1p(-probability);
+        failures = drawFailures(rand);
+    }
+    
+    /**
+     * Carry out the next trial.
+     * @param rand The random generator to draw from.
+     * @return true if the trial succeeds.
+     */
+    public boolean next(Random rand)
+    {
+        if(failures > 0) {
+            failures--;
+            return false;
+        }
+        failures = drawFailures(rand);
+        return true;
+    }
+    
+    /**
+     * Draw the number of trials that fail before the next success.
+     * @param rand The random generator to draw from.
+     * @return The number of failures, Long.MAX_VALUE if no trial can
+     *         succeed.
+     */
+    private long drawFailures(Random rand)
+    {
+        if(probability <= 0) {
+            return Long.MAX_VALUE;
+        }
+        if(probability >= 1) {
+            return 0;
+        }
+        // 1 - nextDouble lies in (0, 1], so its logarithm is finite.
+        double draw = Math.floor(Math.log(1 - rand.nextDouble()) / logFailure);
+        return draw >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) draw;
+    }
+}
@@ -0,0 +1,253 @@
+import java.util.Arrays;
+
+/**
+ * Hands out int handles for objects, such as the occupants of a field,
+ * so that others can refer to them by number rather than by reference.
+ *
+ * A handle holds the slot the object is kept in and the generation of
+ * that slot. Removing an object frees its slot for reuse and moves the
+ * slot on a generation, so a handle kept from before no longer finds
+ * anything: get returns null for it rather than the slot's new object.
+ * Inserting, removing and looking up all take constant time.
+ *
+ * The slot takes as few bits of a handle as the capacity allows and the
+ * generation all the rest, so a small map has thousands of generations
+ * and even the largest has 15. A slot whose generation runs out is
+ * retired rather than starting again at 1, as its old handles would
+ * then find the new object; recycleRetired returns the retired slots
+ * once the owner knows no handle to them is still kept.
+ *
+ * Handles are never 0, so 0 (NONE) can mean "no object". Inserting and
+ * removing may happen on several threads at once, and take a lock.
+ * Looking up takes none: the slot arrays are replaced, never resized in
+ * place, when the map grows, and the new arrays are published together
+ * only once they are filled, so a lookup during an insert on another
+ * thread still finds every object inserted before it.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class SlotMap<T>
+{
+    // The handle that never refers to an object.
+    public static final int NONE = 0;
+    // The largest number of objects a map can be made to hold.
+    public static final int MAX_CAPACITY = 1 << 27;
+    // The fewest bits of a handle given to the slot.
+    private static final int MIN_SLOT_BITS = 10;
+    // The number of slots there are at first, at most.
+    private static final int INITIAL_SLOTS = 1024;
+    
+    // The bits of a handle holding the slot; the generation is above them.
+    private final int slotBits;
+    private final int slotMask;
+    // The last generation of a slot before it is retired.
+    private final int maxGeneration;
+    // The slot arrays, replaced as a whole when the map grows.
+    private volatile Slots slots;
+    // The first free slot, or -1.
+    private int firstFree;
+    // The first retired slot, or -1.
+    private int firstRetired;
+    // The number of slots ever used.
+    private int used;
+    
+    /**
+     * Create an empty slot map.
+     * @param capacity The most objects it will hold at once, at most
+     *                 MAX_CAPACITY.
+     * @throws IllegalArgumentException if the capacity is out of range.
+     */
+    public SlotMap(int capacity)
+    {
+        if(capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("A slot map holds at most " + MAX_CAPACITY
+                                               + " objects, not " + capacity + ".");
+        }
+        // Room for twice the capacity, so retired slots do not run it out.
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) * 2 - 1);
+        slotBits = Math.max(bits, MIN_SLOT_BITS);
+        slotMask = (1 << slotBits) - 1;
+        maxGeneration = (int) ((1L << (32 - slotBits)) - 1);
+        slots = new Slots(Math.min(INITIAL_SLOTS, slotMask + 1));
+        firstFree = -1;
+        firstRetired = -1;
+    }
+    
+    /**
+     * Store an object and return a new handle for it.
+     * @param value The object to store, not null.
+     * @return Its handle.
+     * @throws IllegalStateException if every slot is in use or retired.
+     */
+    public synchronized int insert(T value)
+    {
+        if(firstFree < 0 && used == slots.values.length) {
+            grow();
+        }
+        Slots current = slots;
+        int slot;
+        if(firstFree >= 0) {
+            slot = firstFree;
+            firstFree = current.nextFree[slot];
+        }
+        else {
+            slot = used++;
+            current.generations[slot] = 1;
+        }
+        current.values[slot] = value;
+        return (current.generations[slot] << slotBits) | slot;
+    }
+    
+    /**
+     * Remove the object with the given handle, if the handle is still
+     * current. Its slot is freed, or retired if it has used up its
+     * generations, and the handle becomes stale.
+     * @param handle The handle of the object.
+     */
+    public synchronized void remove(int handle)
+    {
+        if(!contains(handle)) {
+            return;
+        }
+        Slots current = slots;
+        int slot = handle & slotMask;
+        current.values[slot] = null;
+        if(current.generations[slot] == maxGeneration) {
+            current.generations[slot] = 0;
+            current.nextFree[slot] = firstRetired;
+            firstRetired = slot;
+        }
+        else {
+            current.generations[slot]++;
+            current.nextFree[slot] = firstFree;
+            firstFree = slot;
+        }
+    }
+    
+    /**
+     * Return the retired slots to use, their generations starting again
+     * at 1. Only safe once no handle to an object since removed is kept
+     * anywhere, as such a handle could otherwise find a new object.
+     */
+    public synchronized void recycleRetired()
+    {
+        Slots current = slots;
+        while(firstRetired >= 0) {
+            int slot = firstRetired;
+            firstRetired = current.nextFree[slot];
+            current.generations[slot] = 1;
+            current.nextFree[slot] = firstFree;
+            firstFree = slot;
+        }
+    }
+    
+    /**
+     * Return the object with the given handle.
+     * @param handle The handle, which may be NONE.
+     * @return The object, or null if the handle is NONE or stale.
+     */
+    public T get(int handle)
+    {
+        Slots current = slots;
+        if(!current.contains(handle, slotBits, slotMask)) {
+            return null;
+        }
+        // Only objects of type T are ever inserted.
+        @SuppressWarnings("unchecked")
+        T value = (T) current.values[handle & slotMask];
+        return value;
+    }
+    
+    /**
+     * Return whether the given handle refers to an object that is still
+     * in the map.
+     * @param handle The handle, which may be NONE.
+     * @return true if the handle is current.
+     */
+    public boolean contains(int handle)
+    {
+        return slots.contains(handle, slotBits, slotMask);
+    }
+    
+    /**
+     * Remove every object. All handles become stale.
+     */
+    public synchronized void clear()
+    {
+        Slots current = slots;
+        for(int slot = 0; slot < used; slot++) {
+            if(current.values[slot] != null) {
+                remove((current.generations[slot] << slotBits) | slot);
+            }
+        }
+    }
+    
+    /**
+     * Make room for twice as many slots, up to as many as a handle can
+     * hold.
+     */
+    private void grow()
+    {
+        Slots current = slots;
+        int length = current.values.length;
+        if(length > slotMask) {
+            throw new IllegalStateException("All " + (slotMask + 1) + " slots are in use or retired.");
+        }
+        slots = new Slots(current, Math.min(length * 2, slotMask + 1));
+    }
+    
+    /**
+     * The arrays of a map's slots. A map only ever writes to its current
+     * arrays, so arrays it has replaced stay as they were when copied.
+     */
+    private static class Slots
+    {
+        // The object in each slot, or null if the slot is free.
+        private final Object[] values;
+        // The current generation of each slot, from 1 to maxGeneration,
+        // or 0 if the slot is retired or not used yet.
+        private final int[] generations;
+        // The next free slot after each free or retired slot, or -1.
+        private final int[] nextFree;
+        
+        /**
+         * Create empty arrays.
+         * @param length The number of slots.
+         */
+        public Slots(int length)
+        {
+            values = new Object[length];
+            generations = new int[length];
+            nextFree = new int[length];
+        }
+        
+        /**
+         * Copy the given arrays into longer ones.
+         * @param old The arrays to copy.
+         * @param length The number of slots, at least as many as before.
+         */
+        public Slots(Slots old, int length)
+        {
+            values = Arrays.copyOf(old.values, length);
+            generations = Arrays.copyOf(old.generations, length);
+            nextFree = Arrays.copyOf(old.nextFree, length);
+        }
+        
+        /**
+         * Return whether the given handle is current in these arrays.
+         * A generation of 0 never is, which also rules out NONE.
+         * @param handle The handle.
+         * @param slotBits The number of bits of the handle holding the slot.
+         * @param slotMask The mask of those bits.
+         * @return true if the handle is current.
+         */
+        public boolean contains(int handle, int slotBits, int slotMask)
+        {
+            int slot = handle & slotMask;
+            int generation = handle >>> slotBits;
+            return generation != 0 && slot < generations.length
+                   && generations[slot] == generation;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A class representing shared characteristics of species.
@@ -8,16 +10,27 @@ import java.util.Random;
  *          with Reuben Atendido and Oliver Macpherson    
  * @version 2022.02.17 (3)
  */
-public abstract class Species
+public abstract class Species implements Occupant
 {
+    // The id of each class of species, given out in the order the
+    // classes are first asked about (see typeIdOf).
+    private static final ConcurrentHashMap<Class, Integer> typeIds = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextTypeId = new AtomicInteger();
+    
     // Whether the species is alive or not.
     private boolean alive;
     // The species's field.
     private Field field;
     // The species's position in the field.
     private Location location;
+    // The species's handle in the field (see Occupant).
+    private int handle;
     //Flag for if the specie is active at day or night.
     private boolean isNocturnal;
+    // The kinds of terrain the species may enter (see Terrain).
+    private int passable;
+    // The id of the species's class (see typeIdOf).
+    private int typeId;
     //Flag for if the instance of a specie is female or not.
     protected boolean isFemale;
     //Flag for if the instance of a specie is diseased or not.
@@ -33,6 +46,8 @@ public abstract class Species
         alive = true;
         this.field = field;
         this.isNocturnal = isNocturnal;
+        passable = Terrain.passableMask(getClass());
+        typeId = typeIdOf(getClass());
         Random rand = Randomizer.getRandom();
         if(rand.nextInt(2)==0) {
             isFemale=true;
@@ -50,6 +65,45 @@ public abstract class Species
      * @param newSpecies A list to receive newly born/planted species.
      */
     abstract public void act(List<Species> newSpecies);
+    
+    /**
+     * Plan what this species does in a step of a double-buffered
+     * simulation (see BufferedStep). The species may look at the field
+     * and update its own age and food level, but must not change the
+     * field or anything other species can see; the changes it wants
+     * are recorded in the intent instead.
+     * @param intent The intent to record the plans in.
+     */
+    abstract public void plan(Intent intent);
+    
+    /**
+     * Create a newborn of this species at the given location.
+     * @param field The field the newborn lives in.
+     * @param location The location of the newborn.
+     * @return The newborn.
+     */
+    abstract protected Species createYoung(Field field, Location location);
+    
+    /**
+     * Return whether this species would eat the given occupant of a
+     * neighbouring location. Species eat nothing unless they override this.
+     * @param other The occupant, which may be null.
+     * @return true if the occupant is live food for this species.
+     */
+    protected boolean canEat(Object other)
+    {
+        return false;
+    }
+    
+    /**
+     * Eat the given prey, which dies. Species that eat override this
+     * to gain food from it.
+     * @param prey The species being eaten.
+     */
+    protected void eat(Species prey)
+    {
+        prey.setDead();
+    }
 
     /**
      * Check whether the species is alive or not.
@@ -69,11 +123,57 @@ public abstract class Species
         alive = false;
         if(location != null) {
             field.clear(location);
+            field.discard(this);
             location = null;
             field = null;
         }
     }
 
+    /**
+     * @return The species's handle in the field.
+     */
+    public int getHandle()
+    {
+        return handle;
+    }
+    
+    /**
+     * Give the species its handle in the field.
+     * @param handle The handle.
+     */
+    public void setHandle(int handle)
+    {
+        this.handle = handle;
+    }
+
+    /**
+     * @return The id of the species's class (see typeIdOf).
+     */
+    public int getTypeId()
+    {
+        return typeId;
+    }
+    
+    /**
+     * Return a small number identifying a class of species, so that
+     * something kept per class, such as a colour, can be looked up in an
+     * array rather than a map. Ids are given out from 0 upwards.
+     * @param type The class of species.
+     * @return The id of the class.
+     */
+    public static int typeIdOf(Class type)
+    {
+        return typeIds.computeIfAbsent(type, newType -> nextTypeId.getAndIncrement());
+    }
+    
+    /**
+     * @return The number of type ids given out so far.
+     */
+    public static int getTypeCount()
+    {
+        return nextTypeId.get();
+    }
+    
     /**
      * Return the species's location.
      * @return The species's location.
@@ -85,6 +185,7 @@ public abstract class Species
     
     /**
      * Place the species at the new location in the given field.
+     * The field's shared Location for that position is kept.
      * @param newLocation The species's new location.
      */
     protected void setLocation(Location newLocation)
@@ -92,8 +193,108 @@ public abstract class Species
         if(location != null) {
             field.clear(location);
         }
-        location = newLocation;
-        field.place(this, newLocation);
+        location = field.locationAt(newLocation.getRow(), newLocation.getCol());
+        field.place(this, location);
+    }
+    
+    /**
+     * Move the species into another field, such as the buffer being
+     * filled by a double-buffered step. The old field is left as it is.
+     * @param newField The field to move into.
+     * @param newLocation The species's location in the new field.
+     */
+    protected void placeIn(Field newField, Location newLocation)
+    {
+        field = newField;
+        location = newField.locationAt(newLocation.getRow(), newLocation.getCol());
+        field.place(this, location);
+    }
+    
+    /**
+     * Plan to give birth into free adjacent locations.
+     * @param intent The intent to record the births in.
+     * @param births The number of births wanted.
+     * @return The mask of the free adjacent locations left over.
+     */
+    protected int planBirths(Intent intent, int births)
+    {
+        int free = freeNeighbourMask(location);
+        for(int b = 0; b < births && free != 0; b++) {
+            int direction = field.randomDirection(free);
+            free &= ~(1 << direction);
+            intent.giveBirth(direction);
+        }
+        return free;
+    }
+    
+    /**
+     * Plan to eat every adjacent species that this species can eat, in
+     * a random order, as findFood does. The species moves to the last
+     * one it eats.
+     * @param intent The intent to record the meals in.
+     */
+    protected void planFood(Intent intent)
+    {
+        int index = field.indexOf(location);
+        int neighbours = field.shuffledNeighbours(index);
+        for(int i = 0; i < Field.neighbourCount(neighbours); i++) {
+            int cell = field.neighbourIndex(index, neighbours, i);
+            if(canEat(field.getObjectAt(cell)) && field.canEnter(cell, passable)) {
+                intent.eat(Field.neighbourDirection(neighbours, i));
+            }
+        }
+    }
+    
+    /**
+     * Return which of the locations around the given one in the
+     * species's field are free and have terrain it may enter.
+     * @param location The location whose neighbours are wanted.
+     * @return The mask of free neighbouring directions, 0 if none is free.
+     */
+    protected int freeNeighbourMask(Location location)
+    {
+        return field.freeNeighbourMask(field.indexOf(location), passable);
+    }
+    
+    /**
+     * Try to find a free location next to the species that has terrain
+     * it may enter.
+     * @return The location, or null if there is none.
+     */
+    protected Location freeAdjacentLocation()
+    {
+        int free = freeNeighbourMask(location);
+        if(free != 0) {
+            return field.adjacentLocation(location, field.randomDirection(free));
+        }
+        else {
+            return null;
+        }
+    }
+    
+    /**
+     * Return whether the species may enter the terrain at a location,
+     * for instance to take the place of its prey.
+     * @param target The location.
+     * @return true if it may enter the terrain there.
+     */
+    protected boolean canEnter(Location target)
+    {
+        return field.canEnter(field.indexOf(target), passable);
+    }
+    
+    /**
+     * Plan to move into one of the given free locations, dying of
+     * overcrowding if there are none.
+     * @param intent The intent to record the move in.
+     * @param free The mask of free adjacent locations to choose from.
+     */
+    protected void planMove(Intent intent, int free)
+    {
+        if(free != 0) {
+            intent.moveTo(field.randomDirection(free));
+        }
+        intent.mustMove();
     }
     
     /**
@@ -104,6 +305,15 @@ public abstract class Species
     {
         return field;
     }
+    /**
+     * Return the weather over the species's field.
+     * @return The weather state.
+     */
+    protected WeatherState getWeather()
+    {
+        return field.getWeather();
+    }
+    
     /**
      * Return the specie's nocturnal flag
      * @return if the species is nocturnal true or false
@@ -134,6 +344,9 @@ public abstract class Species
     protected void toggleInfection()
     {
         isInfected = !isInfected;
+        if(location != null && field.getObjectAt(location) == this) {
+            field.infectionToggled(isInfected);
+        }
     }
     
 }
@@ -0,0 +1,92 @@
+import java.util.Random;
+
+/**
+ * A random generator for a single thread, used for the streams handed
+ * out by the Randomizer to tiles and species running in parallel.
+ *
+ * Unlike java.util.Random it keeps its state in a plain long, so drawing
+ * a number needs no atomic update, and it can be reseeded without
+ * creating a new object. seedFor derives independent streams from a
+ * seed and a counter, such as a location. The
+ * numbers come from the SplitMix64 algorithm, which is also what
+ * java.util.SplittableRandom uses; being a subclass of Random, it can be
+ * used wherever the species expect one.
+ *
+ * A SplitRandom must not be shared between threads.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class SplitRandom extends Random
+{
+    private static final long serialVersionUID = 1L;
+    // The increment of the SplitMix64 sequence (the golden ratio).
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    
+    // The state of the generator.
+    private long state;
+    
+    /**
+     * Create a generator from the given seed.
+     * @param seed The seed.
+     */
+    public SplitRandom(long seed)
+    {
+        super(0);
+        state = seed;
+    }
+    
+    /**
+     * Restart the generator from the given seed.
+     * @param seed The seed.
+     */
+    public void setSeed(long seed)
+    {
+        state = seed;
+    }
+    
+    /**
+     * @return The next 64 random bits.
+     */
+    public long nextLong()
+    {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+    
+    /**
+     * Return the next random bits, as used by the other methods of Random.
+     * @param bits The number of bits wanted, at most 32.
+     * @return The bits in the low end of an int.
+     */
+    protected int next(int bits)
+    {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+    
+    /**
+     * Scramble a value so that similar values give unrelated results.
+     * Used to turn counters, such as a step and a location, into seeds.
+     * @param value The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+    
+    /**
+     * Return the seed of the stream for the given key within the stream
+     * for the given seed, such as the stream of one location within a
+     * step. The same seed and key always give the same stream.
+     * @param seed The seed of the outer stream.
+     * @param key The key within it.
+     * @return The seed of the inner stream.
+     */
+    public static long seedFor(long seed, long key)
+    {
+        return mix(seed + mix(key + GOLDEN_GAMMA));
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The terrain of a field: which biome feature, such as a river, lies at
+ * each location, if any. The terrain is kept apart from the species in
+ * the field, as one byte per location, and does not change from step to
+ * step, so it costs nothing while the simulation runs.
+ *
+ * Each kind of terrain is made up of one BiomeFeature, which lists the
+ * species that can move through it. From these lists every class of
+ * species gets a passability mask, with one bit per kind of terrain it
+ * may enter, so checking whether a species may enter a location is a
+ * single lookup.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class Terrain
+{
+    // The kinds of terrain. Open land has no feature.
+    public static final int LAND = 0;
+    public static final int RIVER = 1;
+    public static final int LAKE = 2;
+    public static final int MOUNTAIN = 3;
+    // The passability mask of a species that can only walk on open land.
+    public static final int LAND_ONLY = 1 << LAND;
+    // The feature making up each kind of terrain, null for open land.
+    private static final BiomeFeature[] FEATURES = {
+        null, new River(), new Lake(), new Mountain(),
+    };
+    // The passability mask of each class of species, worked out when
+    // first asked for.
+    private static final ConcurrentHashMap<Class, Integer> passable = new ConcurrentHashMap<>();
+    
+    // The depth and width of the terrain.
+    private int depth, width;
+    // The kind of terrain at each location, in row-major order.
+    private byte[] kinds;
+    // One bit per location, in row-major order, set where there is a feature.
+    private long[] featureBits;
+    // The number of locations of each kind.
+    private int[] counts;
+    
+    /**
+     * Create open land of the given size.
+     * @param depth The depth of the terrain.
+     * @param width The width of the terrain.
+     */
+    public Terrain(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        kinds = new byte[depth * width];
+        featureBits = new long[(depth * width + 63) / 64];
+        counts = new int[FEATURES.length];
+        counts[LAND] = kinds.length;
+    }
+    
+    /**
+     * Turn every location back into open land.
+     */
+    public void clear()
+    {
+        Arrays.fill(kinds, (byte) LAND);
+        Arrays.fill(featureBits, 0);
+        Arrays.fill(counts, 0);
+        counts[LAND] = kinds.length;
+    }
+    
+    /**
+     * Set the kind of terrain at a location.
+     * @param index The index of the location.
+     * @param kind The kind of terrain.
+     */
+    public void set(int index, int kind)
+    {
+        counts[kinds[index]]--;
+        counts[kind]++;
+        kinds[index] = (byte) kind;
+        if(kind == LAND) {
+            featureBits[index >>> 6] &= ~(1L << index);
+        }
+        else {
+            featureBits[index >>> 6] |= 1L << index;
+        }
+    }
+    
+    /**
+     * Set the kind of terrain at every location at once.
+     * @param newKinds The kind at each location, in row-major order.
+     * @throws IllegalArgumentException if there is not one kind for each
+     *         location, or a kind is not one of the kinds of terrain.
+     */
+    public void setKinds(byte[] newKinds)
+    {
+        if(newKinds.length != kinds.length) {
+            throw new IllegalArgumentException("Expected " + kinds.length + " kinds, not "
+                                               + newKinds.length + ".");
+        }
+        for(byte kind : newKinds) {
+            if(kind < 0 || kind >= getKindCount()) {
+                throw new IllegalArgumentException("No kind of terrain " + kind + ".");
+            }
+        }
+        System.arraycopy(newKinds, 0, kinds, 0, kinds.length);
+        Arrays.fill(featureBits, 0);
+        Arrays.fill(counts, 0);
+        for(int index = 0; index < kinds.length; index++) {
+            counts[kinds[index]]++;
+            if(kinds[index] != LAND) {
+                featureBits[index >>> 6] |= 1L << index;
+            }
+        }
+    }
+    
+    /**
+     * @return A copy of the kind of terrain at every location, in
+     *         row-major order.
+     */
+    public byte[] getKinds()
+    {
+        return kinds.clone();
+    }
+    
+    /**
+     * @return The kind of terrain at a location.
+     */
+    public int kindAt(int index)
+    {
+        return kinds[index];
+    }
+    
+    /**
+     * @return The feature at a location, or null if it is open land.
+     */
+    public BiomeFeature featureAt(int index)
+    {
+        return featureOf(kinds[index]);
+    }
+    
+    /**
+     * @return The number of locations of a kind of terrain.
+     */
+    public int getCount(int kind)
+    {
+        return counts[kind];
+    }
+    
+    /**
+     * @return The depth of the terrain.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+    
+    /**
+     * @return The width of the terrain.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+    
+    /**
+     * Return the bits marking the locations with a feature, one per
+     * location in row-major order, for a field to read its neighbours
+     * from. They must not be changed.
+     */
+    long[] getFeatureBits()
+    {
+        return featureBits;
+    }
+    
+    /**
+     * @return The number of kinds of terrain, open land included.
+     */
+    public static int getKindCount()
+    {
+        return FEATURES.length;
+    }
+    
+    /**
+     * @return The feature making up a kind of terrain, or null for open
+     *         land.
+     */
+    public static BiomeFeature featureOf(int kind)
+    {
+        return FEATURES[kind];
+    }
+    
+    /**
+     * Return the passability mask of a class of species: bit k is set if
+     * it may enter terrain of kind k. Every species may enter open land.
+     * @param type The class of species.
+     * @return The passability mask.
+     */
+    public static int passableMask(Class type)
+    {
+        return passable.computeIfAbsent(type, Terrain::findPassableMask);
+    }
+    
+    /**
+     * @return true if a species with the given passability mask may
+     *         enter terrain of the given kind.
+     */
+    public static boolean canEnter(int passableMask, int kind)
+    {
+        return (passableMask & (1 << kind)) != 0;
+    }
+    
+    /**
+     * Work out the passability mask of a class of species from the
+     * features it can move through.
+     */
+    private static int findPassableMask(Class type)
+    {
+        int mask = LAND_ONLY;
+        for(int kind = 0; kind < FEATURES.length; kind++) {
+            if(FEATURES[kind] != null && FEATURES[kind].canMoveThrough(type)) {
+                mask |= 1 << kind;
+            }
+        }
+        return mask;
+    }
+}
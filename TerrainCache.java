@@ -0,0 +1,125 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Keeps laid out terrain on disk, one file per seed and size, so that a
+ * terrain is only generated the first time it is asked for and is read
+ * back on every later run.
+ *
+ * A file holds a header, giving the layout version (see
+ * TerrainGenerator.VERSION) and the size, followed by the kind of every
+ * location, compressed. A file that is missing, unreadable, from another
+ * version or holding a kind of terrain that does not exist is ignored and
+ * the terrain generated again, so the cache can be deleted at any time.
+ * Failing to write a file is ignored too.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class TerrainCache
+{
+    // The directory the terrain files are kept in.
+    private static final File DIRECTORY =
+        new File(System.getProperty("java.io.tmpdir"), "fantasy-terrain");
+    // Marks the start of a terrain file.
+    private static final int MAGIC = 0x5445524E;
+    
+    /**
+     * Fill the given terrain from its file for the seed, generating it
+     * and writing the file if there is none yet.
+     * @param terrain The terrain to fill.
+     * @param seed The seed of the terrain.
+     */
+    public static void fill(Terrain terrain, long seed)
+    {
+        if(!load(terrain, seed)) {
+            new TerrainGenerator(seed).generate(terrain);
+            save(terrain, seed);
+        }
+    }
+    
+    /**
+     * Read the given terrain from its file for the seed.
+     * @param terrain The terrain to fill.
+     * @param seed The seed of the terrain.
+     * @return true if the file was there and read, false if the terrain
+     *         is left as it was.
+     */
+    public static boolean load(Terrain terrain, long seed)
+    {
+        File file = fileFor(terrain, seed);
+        if(!file.isFile()) {
+            return false;
+        }
+        try(DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new BufferedInputStream(new FileInputStream(file))))) {
+            if(in.readInt() != MAGIC || in.readInt() != TerrainGenerator.VERSION
+                    || in.readInt() != terrain.getDepth() || in.readInt() != terrain.getWidth()) {
+                return false;
+            }
+            byte[] kinds = new byte[terrain.getDepth() * terrain.getWidth()];
+            in.readFully(kinds);
+            for(byte kind : kinds) {
+                if(kind < 0 || kind >= Terrain.getKindCount()) {
+                    return false;
+                }
+            }
+            terrain.setKinds(kinds);
+            return true;
+        }
+        catch(IOException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Write the given terrain to its file for the seed. The terrain is
+     * written to a temporary file first, so a run reading the cache never
+     * sees half a file.
+     * @param terrain The terrain to write.
+     * @param seed The seed of the terrain.
+     */
+    public static void save(Terrain terrain, long seed)
+    {
+        File file = fileFor(terrain, seed);
+        File partial = new File(DIRECTORY, file.getName() + ".part");
+        try {
+            DIRECTORY.mkdirs();
+            try(DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(partial))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(TerrainGenerator.VERSION);
+                out.writeInt(terrain.getDepth());
+                out.writeInt(terrain.getWidth());
+                out.write(terrain.getKinds());
+            }
+            if(!partial.renameTo(file)) {
+                file.delete();
+                partial.renameTo(file);
+            }
+        }
+        catch(IOException e) {
+            // The terrain is still laid out; it is only generated again
+            // next time.
+            partial.delete();
+        }
+    }
+    
+    /**
+     * @return The file holding the terrain of the given size and seed.
+     */
+    private static File fileFor(Terrain terrain, long seed)
+    {
+        return new File(DIRECTORY, "terrain-v" + TerrainGenerator.VERSION + "-"
+                        + Long.toHexString(seed) + "-"
+                        + terrain.getDepth() + "x" + terrain.getWidth() + ".bin");
+    }
+}
@@ -0,0 +1,223 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out the terrain of a field from a seed: several rivers winding
+ * from the top of the field to the bottom, with lakes and mountains
+ * scattered between them.
+ *
+ * Each river is a polyline with a bend every few rows, each bend
+ * wandering a little to the side of the one before, and is drawn by
+ * filling the locations within half its width of the line in each row.
+ * Lakes lie where one smooth noise field is low and mountains where
+ * another is high; the noise is value noise, random values on a coarse
+ * lattice blended between the lattice points, so the features come out
+ * as rounded patches rather than scattered locations. Rivers are laid
+ * last and cut through the lakes and mountains.
+ *
+ * Every location depends only on the seed and its own position, so the
+ * rows are laid out in parallel, and the same seed always gives the same
+ * terrain. Since the terrain never changes, it can also be kept between
+ * runs (see TerrainCache).
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class TerrainGenerator
+{
+    // The version of the layout; terrain kept from another version is
+    // laid out again.
+    public static final int VERSION = 1;
+    // The number of rivers, and their width as a fraction of the width
+    // of the field.
+    private static final int RIVERS = 3;
+    private static final double RIVER_WIDTH = 0.03;
+    // The number of rows between the bends of a river, and how far it may
+    // wander at each bend, as a fraction of the width of the field.
+    private static final int RIVER_BEND_ROWS = 20;
+    private static final double RIVER_WANDER = 0.05;
+    // The number of locations between the points of the noise lattice.
+    private static final int NOISE_SCALE = 24;
+    // The noise below which there is a lake, and above which a mountain.
+    private static final double LAKE_LEVEL = 0.2;
+    private static final double MOUNTAIN_LEVEL = 0.82;
+    // Keys telling apart the streams of the rivers, lakes and mountains.
+    private static final long RIVER_KEY = 1;
+    private static final long LAKE_KEY = 2;
+    private static final long MOUNTAIN_KEY = 3;
+    // The number of rows laid out by one task before it is split.
+    private static final int ROWS_PER_TASK = 16;
+    
+    // The seed of the terrain.
+    private long seed;
+    // The depth and width of the terrain being laid out.
+    private int depth, width;
+    // The column of the middle of each river at each of its bends.
+    private double[][] riverBends;
+    // Half the width of a river.
+    private int riverHalfWidth;
+    // The kind of terrain laid at each location, in row-major order.
+    private byte[] kinds;
+    
+    /**
+     * Create a generator laying out terrain from the given seed.
+     * @param seed The seed of the terrain.
+     */
+    public TerrainGenerator(long seed)
+    {
+        this.seed = seed;
+    }
+    
+    /**
+     * Lay out the whole of the given terrain, replacing what was there.
+     * @param terrain The terrain to lay out.
+     */
+    public void generate(Terrain terrain)
+    {
+        depth = terrain.getDepth();
+        width = terrain.getWidth();
+        kinds = new byte[depth * width];
+        planRivers();
+        ForkJoinPool.commonPool().invoke(new RowTask(0, depth));
+        terrain.setKinds(kinds);
+        kinds = null;
+        riverBends = null;
+    }
+    
+    /**
+     * Choose the bends of every river. Each river starts at a random
+     * column and wanders from there, staying inside the field.
+     */
+    private void planRivers()
+    {
+        riverHalfWidth = Math.max(1, (int) (width * RIVER_WIDTH)) / 2;
+        int bends = depth / RIVER_BEND_ROWS + 2;
+        riverBends = new double[RIVERS][bends];
+        SplitRandom rand = new SplitRandom(seed);
+        for(int river = 0; river < RIVERS; river++) {
+            rand.setSeed(SplitRandom.seedFor(seed + RIVER_KEY, river));
+            double column = width * (0.1 + 0.8 * rand.nextDouble());
+            for(int bend = 0; bend < bends; bend++) {
+                riverBends[river][bend] = column;
+                column += width * RIVER_WANDER * (2 * rand.nextDouble() - 1);
+                column = Math.max(0, Math.min(width - 1, column));
+            }
+        }
+    }
+    
+    /**
+     * Lay out one row of the terrain.
+     * @param row The row to lay out.
+     */
+    private void generateRow(int row)
+    {
+        int start = row * width;
+        for(int col = 0; col < width; col++) {
+            if(noise(LAKE_KEY, row, col) < LAKE_LEVEL) {
+                kinds[start + col] = Terrain.LAKE;
+            }
+            else if(noise(MOUNTAIN_KEY, row, col) > MOUNTAIN_LEVEL) {
+                kinds[start + col] = Terrain.MOUNTAIN;
+            }
+        }
+        int bend = row / RIVER_BEND_ROWS;
+        double along = (double) (row % RIVER_BEND_ROWS) / RIVER_BEND_ROWS;
+        for(double[] bends : riverBends) {
+            double middle = bends[bend] + (bends[bend + 1] - bends[bend]) * along;
+            int from = Math.max(0, (int) Math.round(middle) - riverHalfWidth);
+            int to = Math.min(width - 1, (int) Math.round(middle) + riverHalfWidth);
+            for(int col = from; col <= to; col++) {
+                kinds[start + col] = Terrain.RIVER;
+            }
+        }
+    }
+    
+    /**
+     * Return the value of a smooth noise field at a location: the random
+     * values at the four lattice points around it, blended by how close
+     * it is to each.
+     * @param key The key of the noise field.
+     * @param row The row of the location.
+     * @param col The column of the location.
+     * @return The noise, between 0 and 1.
+     */
+    private double noise(long key, int row, int col)
+    {
+        int latticeRow = row / NOISE_SCALE;
+        int latticeCol = col / NOISE_SCALE;
+        double down = smooth((double) (row % NOISE_SCALE) / NOISE_SCALE);
+        double across = smooth((double) (col % NOISE_SCALE) / NOISE_SCALE);
+        double top = blend(latticeValue(key, latticeRow, latticeCol),
+                           latticeValue(key, latticeRow, latticeCol + 1), across);
+        double bottom = blend(latticeValue(key, latticeRow + 1, latticeCol),
+                              latticeValue(key, latticeRow + 1, latticeCol + 1), across);
+        return blend(top, bottom, down);
+    }
+    
+    /**
+     * Return the random value of a noise field at a lattice point.
+     * @return A value between 0 and 1.
+     */
+    private double latticeValue(long key, int latticeRow, int latticeCol)
+    {
+        long bits = SplitRandom.seedFor(SplitRandom.seedFor(seed + key, latticeRow), latticeCol);
+        return (bits >>> 11) * 0x1.0p-53;
+    }
+    
+    /**
+     * Blend between two values.
+     * @param from The value at 0.
+     * @param to The value at 1.
+     * @param along How far between them, from 0 to 1.
+     */
+    private static double blend(double from, double to, double along)
+    {
+        return from + (to - from) * along;
+    }
+    
+    /**
+     * Ease a blend in and out, so the noise has no creases along the
+     * lattice lines.
+     */
+    private static double smooth(double along)
+    {
+        return along * along * (3 - 2 * along);
+    }
+    
+    /**
+     * Lays out a range of rows, splitting it between threads when it is
+     * long.
+     */
+    private class RowTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+    
+        // The range of rows to lay out.
+        private int from, to;
+    
+        /**
+         * Create a task laying out the rows from from up to, but not
+         * including, to.
+         */
+        public RowTask(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+    
+        /**
+         * Lay out the range, or split it in two.
+         */
+        protected void compute()
+        {
+            if(to - from > ROWS_PER_TASK) {
+                int middle = (from + to) / 2;
+                invokeAll(new RowTask(from, middle), new RowTask(middle, to));
+                return;
+            }
+            for(int row = from; row < to; row++) {
+                generateRow(row);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lets the species of a simulation act in parallel by splitting the field
+ * into square tiles. The tiles are coloured like a 2x2 checkerboard and
+ * the four colours take their turn one after another; within a colour
+ * every tile runs at the same time on a fork-join pool.
+ *
+ * A species only looks at and changes the locations right next to its
+ * own, so two tiles of the same colour, which always have a whole tile
+ * between them, never touch the same location. Species that move or give
+ * birth across a tile edge are therefore safe, and simply belong to their
+ * new tile on the next step.
+ *
+ * Each tile draws from its own random stream (see SplitRandom), seeded
+ * from the shared generator before the tiles start, so a run is
+ * reproducible for a given seed and tile size however many threads are
+ * used, and the threads never contend for a generator.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class TiledStep
+{
+    // The smallest tile size keeping tiles of the same colour apart.
+    public static final int MIN_TILE_SIZE = 2;
+    // The number of tile colours, taking turns within a step.
+    private static final int COLOURS = 4;
+    
+    // The width and depth of a tile.
+    private int tileSize;
+    // How many tiles there are across and down the field.
+    private int tilesAcross, tilesDown;
+    // The pool running the tiles of a colour.
+    private ForkJoinPool pool;
+    // The species starting the step in each tile, and those born there.
+    private List<List<Species>> tileSpecies;
+    private List<List<Species>> tileNewborns;
+    // The random stream of each tile, reseeded every step.
+    private SplitRandom[] tileRandoms;
+    
+    /**
+     * Split the field into tiles of the given size.
+     * @param field The field of the simulation.
+     * @param tileSize The width and depth of a tile, at least MIN_TILE_SIZE.
+     * @param threads The number of threads to run tiles on.
+     * @throws IllegalArgumentException if the tile size is below
+     *         MIN_TILE_SIZE, as tiles of the same colour would then touch.
+     */
+    public TiledStep(Field field, int tileSize, int threads)
+    {
+        if(tileSize < MIN_TILE_SIZE) {
+            throw new IllegalArgumentException("Tiles must be at least " + MIN_TILE_SIZE
+                                               + " wide, not " + tileSize + ".");
+        }
+        if(threads < 1) {
+            threads = 1;
+        }
+        this.tileSize = tileSize;
+        tilesAcross = (field.getWidth() + tileSize - 1) / tileSize;
+        tilesDown = (field.getDepth() + tileSize - 1) / tileSize;
+        pool = new ForkJoinPool(threads);
+        tileSpecies = new ArrayList<>();
+        tileNewborns = new ArrayList<>();
+        for(int tile = 0; tile < tilesAcross * tilesDown; tile++) {
+            tileSpecies.add(new ArrayList<>());
+            tileNewborns.add(new ArrayList<>());
+        }
+        tileRandoms = new SplitRandom[tilesAcross * tilesDown];
+        for(int tile = 0; tile < tileRandoms.length; tile++) {
+            tileRandoms[tile] = new SplitRandom(tile);
+        }
+    }
+    
+    /**
+     * Let every species in the list act once, tile by tile.
+     * Afterwards the list holds the surviving species and the newborns,
+     * ordered by tile.
+     * @param species The species of the simulation.
+     * @param simulation The simulation deciding how each species acts.
+     */
+    public void step(List<Species> species, Simulation simulation)
+    {
+        // Sort the species into the tiles they start the step in.
+        for(Species next : species) {
+            Location location = next.getLocation();
+            if(location != null) {
+                tileSpecies.get(tileOf(location)).add(next);
+            }
+        }
+        Random rand = Randomizer.getRandom();
+        for(SplitRandom tileRandom : tileRandoms) {
+            tileRandom.setSeed(rand.nextLong());
+        }
+    
+        for(int colour = 0; colour < COLOURS; colour++) {
+            List<TileTask> tasks = new ArrayList<>();
+            for(int tile = 0; tile < tileRandoms.length; tile++) {
+                if(colourOf(tile) == colour) {
+                    tasks.add(new TileTask(tile, simulation));
+                }
+            }
+            pool.invoke(new ColourTask(tasks));
+        }
+    
+        // Collect the survivors and newborns in tile order.
+        species.clear();
+        for(int tile = 0; tile < tileRandoms.length; tile++) {
+            addAlive(tileSpecies.get(tile), species);
+            addAlive(tileNewborns.get(tile), species);
+            tileSpecies.get(tile).clear();
+            tileNewborns.get(tile).clear();
+        }
+    }
+    
+    /**
+     * Stop the threads of this step. It must not be used afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+    
+    /**
+     * @return The width and depth of a tile.
+     */
+    public int getTileSize()
+    {
+        return tileSize;
+    }
+    
+    /**
+     * Return the tile containing the given location.
+     */
+    private int tileOf(Location location)
+    {
+        return (location.getRow() / tileSize) * tilesAcross + location.getCol() / tileSize;
+    }
+    
+    /**
+     * Return the colour of a tile. Neighbouring tiles, including
+     * diagonal ones, always have different colours.
+     */
+    private int colourOf(int tile)
+    {
+        int tileRow = tile / tilesAcross;
+        int tileCol = tile % tilesAcross;
+        return (tileRow % 2) * 2 + tileCol % 2;
+    }
+    
+    /**
+     * Add the species still alive to the given list.
+     */
+    private void addAlive(List<Species> from, List<Species> to)
+    {
+        for(Species next : from) {
+            if(next.isAlive()) {
+                to.add(next);
+            }
+        }
+    }
+    
+    /**
+     * Lets the species of one tile act, using the tile's own random
+     * stream.
+     */
+    private class TileTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+    
+        // The tile to run.
+        private int tile;
+        // The simulation deciding how each species acts.
+        private Simulation simulation;
+    
+        /**
+         * Create a task for the given tile.
+         */
+        public TileTask(int tile, Simulation simulation)
+        {
+            this.tile = tile;
+            this.simulation = simulation;
+        }
+    
+        /**
+         * Let every species that started the step in the tile act.
+         */
+        protected void compute()
+        {
+            Randomizer.setThreadRandom(tileRandoms[tile]);
+            try {
+                List<Species> newborns = tileNewborns.get(tile);
+                for(Species next : tileSpecies.get(tile)) {
+                    simulation.actOnce(next, newborns);
+                }
+            }
+            finally {
+                Randomizer.setThreadRandom(null);
+            }
+        }
+    }
+    
+    /**
+     * Runs all the tiles of one colour at the same time.
+     */
+    private static class ColourTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+    
+        // The tiles of the colour.
+        private List<TileTask> tasks;
+    
+        /**
+         * Create a task running the given tiles.
+         */
+        public ColourTask(List<TileTask> tasks)
+        {
+            this.tasks = tasks;
+        }
+    
+        /**
+         * Run the tiles and wait for all of them.
+         */
+        protected void compute()
+        {
+            invokeAll(tasks);
+        }
+    }
+}
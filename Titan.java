@@ -1,6 +1,5 @@
 import java.util.Random;
 import java.util.List;
-import java.util.Iterator;
 
 /**
  * A simple model of a titan.
@@ -37,8 +36,6 @@ public class Titan extends Species
     private static final double DISEASE_PROBABILITY = 0.8;
     //flag for whether titan is nocturnal
     private static final boolean isNocturnal = false;
-    //A shared random number generator to control breeding
-    private static final Random rand = Randomizer.getRandom();
     //The age of the titan
     private int age;
     //The food level of the titan
@@ -53,6 +50,7 @@ public class Titan extends Species
     public Titan(boolean randomAge, Field field, Location location)
     {
         super(field, location, isNocturnal);
+        Random rand = Randomizer.getRandom();
         this.isFemale = isFemale;
         this.hungerLoss = 1;
         if(randomAge) {
@@ -65,6 +63,40 @@ public class Titan extends Species
         }
     }
 
+    /**
+     * Plan the titan's step without changing the field: it ages, gets
+     * hungrier, may breed, eats the adjacent species it can and moves.
+     * @param intent The intent to record the plans in.
+     */
+    public void plan(Intent intent)
+    {
+        age++;
+        foodLevel = foodLevel - hungerLoss;
+        if(age > MAX_AGE || foodLevel <= 0) {
+            intent.die();
+            return;
+        }
+        int free = planBirths(intent, breed());
+        planFood(intent);
+        planMove(intent, free);
+    }
+    
+    /**
+     * Create a newly born titan.
+     * @param field The field the new titan lives in.
+     * @param location The location of the new titan.
+     * @return The new titan.
+     */
+    protected Species createYoung(Field field, Location location)
+    {
+        Random rand = Randomizer.getRandom();
+        Titan young = new Titan(false, field, location);
+        if(rand.nextDouble() <= DISEASE_PROBABILITY) {
+            young.toggleInfection();
+        }
+        return young;
+    }
+
     /**
      * Increase the age. This could result in the titan's death.
      */
@@ -116,7 +148,7 @@ public class Titan extends Species
             Location newLocation = findFood();
             if(newLocation == null) { 
                 // No food found - try to move to a free location.
-                newLocation = getField().freeAdjacentLocation(getLocation());
+                newLocation = freeAdjacentLocation();
             }
             // See if it was possible to move.
             if(newLocation != null) {
@@ -136,11 +168,10 @@ public class Titan extends Species
     private boolean hasMate()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object animal = field.getNeighbourAt(location, adjacent, i);
             if(animal instanceof Titan) {
                 Titan titan = (Titan) animal;
                 if(titan.gender()!=this.gender()) {
@@ -167,6 +198,7 @@ public class Titan extends Species
      */
     private int breed()
     {
+        Random rand = Randomizer.getRandom();
         int births = 0;
         if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
             births = rand.nextInt(MAX_LITTER_SIZE) + 1;
@@ -182,15 +214,14 @@ public class Titan extends Species
     private void giveBirth(List<Species> newTitans)
     {
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        Location location = getLocation();
+        int free = freeNeighbourMask(location);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Titan young = new Titan(false, field, loc);
-            if(rand.nextDouble() <= DISEASE_PROBABILITY){
-                young.toggleInfection();
-            }
-            newTitans.add(young);
+        for(int b = 0; b < births && free != 0; b++) {
+            int direction = field.randomDirection(free);
+            free &= ~(1 << direction);
+            Location loc = field.adjacentLocation(location, direction);
+            newTitans.add(createYoung(field, loc));
         }
     }
     
@@ -202,83 +233,98 @@ public class Titan extends Species
     private Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
         Location foodLocation = null;
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object species = field.getObjectAt(where);
-            if(species instanceof Fairy) {
-                Fairy fairy = (Fairy) species;
-                if(fairy.isAlive()) { 
-                    fairy.setDead();
-                    if(foodLevel+FAIRY_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += FAIRY_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    
-                    if(fairy.isInfected() && rand.nextDouble() <= DISEASE_PROBABILITY){
-                        toggleInfection();
-                        diseaseEffect();
-                    }
-                    return where;
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object species = field.getNeighbourAt(location, adjacent, i);
+            if(canEat(species) && canEnter(field.neighbourLocation(location, adjacent, i))) {
+                eat((Species) species);
+                if(species instanceof Fairy) {
+                    return field.neighbourLocation(location, adjacent, i);
                 }
+                foodLocation = field.neighbourLocation(location, adjacent, i);
             }
-            else if(species instanceof Grendle) {
-                Grendle grendle = (Grendle) species;
-                if(grendle.isAlive()) {
-                    grendle.setDead();
-                    if(foodLevel+GRENDLE_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += GRENDLE_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
-            }    
-            else if(species instanceof Unicorn) {
-                Unicorn unicorn = (Unicorn) species;
-                if(unicorn.isAlive()) {
-                    unicorn.setDead();
-                    if(foodLevel+UNICORN_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += UNICORN_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
-            }   
-            else if (species instanceof Gnome) {
-                Gnome gnome = (Gnome) species;
-                if(gnome.isAlive()) {
-                    gnome.setDead();
-                    if(foodLevel+GNOME_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += GNOME_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
+        }
+        return foodLocation;
+    }
+    
+    /**
+     * Plan to eat adjacent species in a random order, as findFood does,
+     * stopping once a fairy is eaten.
+     * @param intent The intent to record the meals in.
+     */
+    protected void planFood(Intent intent)
+    {
+        Field field = getField();
+        int index = field.indexOf(getLocation());
+        int neighbours = field.shuffledNeighbours(index);
+        for(int i = 0; i < Field.neighbourCount(neighbours); i++) {
+            int cell = field.neighbourIndex(index, neighbours, i);
+            Object species = field.getObjectAt(cell);
+            if(canEat(species) && canEnter(field.locationAt(cell))) {
+                intent.eat(Field.neighbourDirection(neighbours, i));
+                if(species instanceof Fairy) {
+                    return;
                 }
             }
-            else if (species instanceof Faegrass) {
-                Faegrass faegrass = (Faegrass) species;
-                if(faegrass.isAlive()) {
-                    faegrass.setDead();
-                    if(foodLevel+FAEGRASS_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += FAEGRASS_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
+        }
+    }
+    
+    /**
+     * Check whether this titan eats the given species.
+     * @param other The species to check.
+     * @return true if it is alive and food for a titan.
+     */
+    protected boolean canEat(Object other)
+    {
+        return (other instanceof Fairy ||
+                other instanceof Grendle ||
+                other instanceof Unicorn ||
+                other instanceof Gnome ||
+                other instanceof Faegrass) && ((Species) other).isAlive();
+    }
+    
+    /**
+     * Eat the given species.
+     * @param prey The species to eat, which must be alive.
+     */
+    protected void eat(Species prey)
+    {
+        Random rand = Randomizer.getRandom();
+        prey.setDead();
+        if(prey instanceof Fairy) {
+            gainFood(FAIRY_FOOD_VALUE);
+            if(((Fairy) prey).isInfected() && rand.nextDouble() <= DISEASE_PROBABILITY){
+                toggleInfection();
+                diseaseEffect();
             }
         }
-        return foodLocation;
+        else if(prey instanceof Grendle) {
+            gainFood(GRENDLE_FOOD_VALUE);
+        }
+        else if(prey instanceof Unicorn) {
+            gainFood(UNICORN_FOOD_VALUE);
+        }
+        else if(prey instanceof Gnome) {
+            gainFood(GNOME_FOOD_VALUE);
+        }
+        else if(prey instanceof Faegrass) {
+            gainFood(FAEGRASS_FOOD_VALUE);
+        }
+    }
+    
+    /**
+     * Increase the food level, up to the maximum.
+     * @param foodValue The food value of the species eaten.
+     */
+    private void gainFood(int foodValue)
+    {
+        if(foodLevel+foodValue <= MAX_HUNGER) {
+            foodLevel += foodValue;
+        }
+        else {
+            foodLevel = MAX_HUNGER;
+        }
     }
 }
@@ -1,6 +1,5 @@
 import java.util.Random;
 import java.util.List;
-import java.util.Iterator;
 
 /**
  * A simple model of a unicorn
@@ -28,8 +27,6 @@ public class Unicorn extends Species
     private static final int FAEGRASS_FOOD_VALUE = 30;
     //The maximum a pif can eat before becoming full
     private static final int MAX_HUNGER = 150;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
     //A flag which determines the time of day this species moves.
     private static final boolean isNocturnal = false;
     // Individual characteristics (instance fields).
@@ -51,6 +48,7 @@ public class Unicorn extends Species
     public Unicorn(boolean randomAge, Field field, Location location)
     {
         super(field, location, isNocturnal);
+        Random rand = Randomizer.getRandom();
         this.isFemale = isFemale;
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
@@ -79,7 +77,7 @@ public class Unicorn extends Species
             Location newLocation = findFood();
             if(newLocation == null) { 
                 // No food found - try to move to a free location.
-                newLocation = getField().freeAdjacentLocation(getLocation());
+                newLocation = freeAdjacentLocation();
             }
             // See if it was possible to move.
             if(newLocation != null) {
@@ -92,6 +90,35 @@ public class Unicorn extends Species
         }
     }
 
+    /**
+     * Plan the unicorn's step without changing the field: it ages, gets
+     * hungrier, may breed, eats every adjacent species it can and moves.
+     * @param intent The intent to record the plans in.
+     */
+    public void plan(Intent intent)
+    {
+        age++;
+        foodLevel = foodLevel - 2;
+        if(age > MAX_AGE || foodLevel <= 0) {
+            intent.die();
+            return;
+        }
+        int free = planBirths(intent, breed());
+        planFood(intent);
+        planMove(intent, free);
+    }
+    
+    /**
+     * Create a newly born unicorn.
+     * @param field The field the new unicorn lives in.
+     * @param location The location of the new unicorn.
+     * @return The new unicorn.
+     */
+    protected Species createYoung(Field field, Location location)
+    {
+        return new Unicorn(false, field, location);
+    }
+
     /**
      * Increase the age. This could result in the grendle's death.
      */
@@ -123,29 +150,53 @@ public class Unicorn extends Species
     private Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
         Location foodLocation = null;
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object species = field.getObjectAt(where);
-            if(species instanceof Faegrass) {
-                Faegrass faegrass = (Faegrass) species;
-                if(faegrass.isAlive()) { 
-                    faegrass.setDead();
-                    if(foodLevel+FAEGRASS_FOOD_VALUE <= MAX_HUNGER) {
-                        foodLevel += FAEGRASS_FOOD_VALUE;
-                    }
-                    else {
-                        foodLevel = MAX_HUNGER;
-                    }
-                    foodLocation = where;
-                }
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object species = field.getNeighbourAt(location, adjacent, i);
+            if(canEat(species) && canEnter(field.neighbourLocation(location, adjacent, i))) {
+                eat((Species) species);
+                foodLocation = field.neighbourLocation(location, adjacent, i);
             }
         }
         return foodLocation;
     }
     
+    /**
+     * Check whether this unicorn eats the given species.
+     * @param other The species to check.
+     * @return true if it is alive and food for a unicorn.
+     */
+    protected boolean canEat(Object other)
+    {
+        return (other instanceof Faegrass) && ((Species) other).isAlive();
+    }
+    
+    /**
+     * Eat the given species.
+     * @param prey The species to eat, which must be alive.
+     */
+    protected void eat(Species prey)
+    {
+        prey.setDead();
+        gainFood(FAEGRASS_FOOD_VALUE);
+    }
+    
+    /**
+     * Increase the food level, up to the maximum.
+     * @param foodValue The food value of the species eaten.
+     */
+    private void gainFood(int foodValue)
+    {
+        if(foodLevel+foodValue <= MAX_HUNGER) {
+            foodLevel += foodValue;
+        }
+        else {
+            foodLevel = MAX_HUNGER;
+        }
+    }
+    
     /**
      * Check whether or not this unicorn is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -154,14 +205,16 @@ public class Unicorn extends Species
     private void giveBirth(List<Species> newUnicorns)
     {
         // New grendlees are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Get a mask of the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        Location location = getLocation();
+        int free = freeNeighbourMask(location);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Unicorn young = new Unicorn(false, field, loc);
-            newUnicorns.add(young);
+        for(int b = 0; b < births && free != 0; b++) {
+            int direction = field.randomDirection(free);
+            free &= ~(1 << direction);
+            Location loc = field.adjacentLocation(location, direction);
+            newUnicorns.add(createYoung(field, loc));
         }
     }
         
@@ -172,6 +225,7 @@ public class Unicorn extends Species
      */
     private int breed()
     {
+        Random rand = Randomizer.getRandom();
         int births = 0;
         if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
             births = rand.nextInt(MAX_LITTER_SIZE) + 1;
@@ -193,11 +247,10 @@ public class Unicorn extends Species
     private boolean hasMate()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
+        Location location = getLocation();
+        int adjacent = field.shuffledNeighbours(location);
+        for(int i = 0; i < Field.neighbourCount(adjacent); i++) {
+            Object animal = field.getNeighbourAt(location, adjacent, i);
             if(animal instanceof Unicorn) {
                 Unicorn unicorn = (Unicorn) animal;
                 if(unicorn.gender()!=this.gender()) {
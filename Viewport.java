@@ -0,0 +1,134 @@
+
+/**
+ * The part of a field a view shows, and how finely: the rectangle of
+ * locations starting at (row, col), rows deep and cols wide, taken in
+ * square blocks of blockSize locations a side, one block to each pixel
+ * of a frame (see FieldFrame). A block size of 1 shows every location;
+ * larger sizes, always powers of two, let a view show a field far larger
+ * than the screen with frames no larger than the screen.
+ *
+ * A viewport never changes once made.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class Viewport
+{
+    // The first row and column shown, and the number of each.
+    private final int row, col, rows, cols;
+    // The number of locations a side taken into each pixel of a frame.
+    private final int blockSize;
+    
+    /**
+     * Create a viewport.
+     * @param row The first row shown, a multiple of blockSize.
+     * @param col The first column shown, a multiple of blockSize.
+     * @param rows The number of rows shown.
+     * @param cols The number of columns shown.
+     * @param blockSize The locations a side in each pixel, a power of two.
+     */
+    public Viewport(int row, int col, int rows, int cols, int blockSize)
+    {
+        this.row = row;
+        this.col = col;
+        this.rows = rows;
+        this.cols = cols;
+        this.blockSize = blockSize;
+    }
+    
+    /**
+     * Return a viewport showing the whole of a field in a frame of at
+     * most maxPixels a side, as finely as that allows.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param maxPixels The largest frame size wanted.
+     * @return The viewport.
+     */
+    public static Viewport whole(int depth, int width, int maxPixels)
+    {
+        int blockSize = 1;
+        while(Math.max(depth, width) > maxPixels * blockSize) {
+            blockSize *= 2;
+        }
+        return new Viewport(0, 0, depth, width, blockSize);
+    }
+    
+    /**
+     * @return The first row shown.
+     */
+    public int getRow()
+    {
+        return row;
+    }
+    
+    /**
+     * @return The first column shown.
+     */
+    public int getCol()
+    {
+        return col;
+    }
+    
+    /**
+     * @return The number of rows shown.
+     */
+    public int getRows()
+    {
+        return rows;
+    }
+    
+    /**
+     * @return The number of columns shown.
+     */
+    public int getCols()
+    {
+        return cols;
+    }
+    
+    /**
+     * @return The number of locations a side in each pixel of a frame.
+     */
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+    
+    /**
+     * @return The number of rows of pixels in a frame of the viewport.
+     */
+    public int getFrameRows()
+    {
+        return (rows + blockSize - 1) / blockSize;
+    }
+    
+    /**
+     * @return The number of columns of pixels in a frame of the viewport.
+     */
+    public int getFrameCols()
+    {
+        return (cols + blockSize - 1) / blockSize;
+    }
+    
+    /**
+     * Implement content equality.
+     */
+    public boolean equals(Object obj)
+    {
+        if(obj instanceof Viewport) {
+            Viewport other = (Viewport) obj;
+            return row == other.row && col == other.col && rows == other.rows
+                   && cols == other.cols && blockSize == other.blockSize;
+        }
+        else {
+            return false;
+        }
+    }
+    
+    /**
+     * @return A hashcode for the viewport.
+     */
+    public int hashCode()
+    {
+        return (((row * 31 + col) * 31 + rows) * 31 + cols) * 31 + blockSize;
+    }
+}
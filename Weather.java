@@ -3,6 +3,8 @@
  * A simple model of 5 different weather states utilising 3 boolean weather flags
  * A specific combination of flags will cause the species on the grid to completely 
  * stop acting. Determines the weather text returned to be displayed on the gui.
+ * The WeatherState given by the flags is worked out when a flag changes,
+ * not each time it is asked for.
  *
  * @author Reuben Atendido and Oliver Macpherson
  * @version 1
@@ -13,27 +15,21 @@ public class Weather
     private boolean isRaining = false;
     private boolean isSnowing = false;
     private boolean isSunny = false;
+    //the state given by the combination of the flags
+    private WeatherState state = WeatherState.CLEAR;
     
     /**
      * Returns weather message based of combination of the weather flags
      */
     public String getWeather() {
-        String weathertype = "Neutral";
-        if( isRaining && !isSnowing && !isSunny ){
-            return "Drab Rain";
-        }
-        else if ( isSnowing && !isRaining && !isSunny){
-            return "Nicely Snowing";
-        }
-        else if ( isSnowing && isRaining){
-            return "Totally Frozen";
-        }
-        else if ( isSunny && !isSnowing && !isRaining){
-            return "Exceedingly Hot";
-        }
-        else{
-            return "Clear Day";
-        }
+        return state.getLabel();
+    }
+    
+    /**
+     * Returns the weather state given by the combination of the weather flags
+     */
+    public WeatherState getState() {
+        return state;
     }
     
      /**
@@ -41,6 +37,7 @@ public class Weather
      */
     public void toggleRain() {
         isRaining = !isRaining;
+        state = WeatherState.of(isRaining, isSnowing, isSunny);
     }
     
     /**
@@ -48,6 +45,7 @@ public class Weather
      */
     public void toggleSnow() {
         isSnowing = !isSnowing;
+        state = WeatherState.of(isRaining, isSnowing, isSunny);
     }
     
     /**
@@ -55,6 +53,7 @@ public class Weather
      */
     public void toggleSun() {
         isSunny = !isSunny;
+        state = WeatherState.of(isRaining, isSnowing, isSunny);
     }
     
     /**
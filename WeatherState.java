@@ -0,0 +1,94 @@
+/**
+ * The states the weather can be in. Each state knows the text shown for
+ * it on the GUI, the chance that an awake species acts in it and whether
+ * it may kill the species that do act, so these can be looked up once
+ * per step rather than worked out for every species.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public enum WeatherState
+{
+    CLEAR("Clear Day", 1.0, false),
+    RAIN("Drab Rain", 0.7, false),
+    SNOW("Nicely Snowing", 0.4, false),
+    // Rain and snow together stop every species from acting.
+    FROZEN("Totally Frozen", 0.0, false),
+    HOT("Exceedingly Hot", 1.0, true);
+    
+    // The text shown for the state.
+    private final String label;
+    // The probability that an awake species acts.
+    private final double actChance;
+    // Whether species that act may die of the weather.
+    private final boolean damaging;
+    
+    /**
+     * Create a weather state.
+     * @param label The text shown for the state.
+     * @param actChance The probability that an awake species acts.
+     * @param damaging Whether species that act may die of the weather.
+     */
+    WeatherState(String label, double actChance, boolean damaging)
+    {
+        this.label = label;
+        this.actChance = actChance;
+        this.damaging = damaging;
+    }
+    
+    /**
+     * Return the state given by a combination of the weather flags.
+     * @param raining Whether it is raining.
+     * @param snowing Whether it is snowing.
+     * @param sunny Whether it is sunny.
+     * @return The weather state.
+     */
+    public static WeatherState of(boolean raining, boolean snowing, boolean sunny)
+    {
+        if(raining && snowing) {
+            return FROZEN;
+        }
+        else if(sunny) {
+            return raining || snowing ? CLEAR : HOT;
+        }
+        else if(raining) {
+            return RAIN;
+        }
+        else if(snowing) {
+            return SNOW;
+        }
+        return CLEAR;
+    }
+    
+    /**
+     * @return The text shown for the state.
+     */
+    public String getLabel()
+    {
+        return label;
+    }
+    
+    /**
+     * @return The probability that an awake species acts, 1 if all do.
+     */
+    public double getActChance()
+    {
+        return actChance;
+    }
+    
+    /**
+     * @return true if species that act may die of the weather.
+     */
+    public boolean isDamaging()
+    {
+        return damaging;
+    }
+    
+    /**
+     * @return The text shown for the state.
+     */
+    public String toString()
+    {
+        return label;
+    }
+}
@@ -0,0 +1,134 @@
+import benchmarks.Workload;
+import javax.swing.SwingUtilities;
+
+/**
+ * Makes the workloads measured by benchmarks.HotPathBenchmark: a whole
+ * headless step, and the field, statistics and view operations called
+ * on every step. Each workload starts from a new simulation of the
+ * default seed.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class HotPathWorkloads
+{
+    /**
+     * Make a workload.
+     * @param name The name of the operation, as used by HotPathBenchmark.
+     * @param size The width and depth of the field.
+     * @return The workload.
+     * @throws IllegalArgumentException if there is no operation of that name.
+     */
+    public static Workload create(String name, int size)
+    {
+        Randomizer.reset();
+        switch(name) {
+            case "simulateOneStep":
+                return step(new Simulation(size, size));
+            case "simulateOneStepBulk":
+                Simulation bulk = new Simulation(size, size);
+                bulk.setBulkSampling(true);
+                return step(bulk);
+            case "entitySimulationStep":
+                EntitySimulation entities = new EntitySimulation(size, size);
+                return () -> {
+                    entities.simulateOneStep();
+                    return entities.getStep();
+                };
+            case "adjacentLocations":
+                Field field = new Simulation(size, size).getField();
+                int[] next = {0};
+                return () -> field.adjacentLocations(nextLocation(field, next)).size();
+            case "getFreeAdjacentLocations":
+                Field freeField = new Simulation(size, size).getField();
+                int[] nextFree = {0};
+                return () -> freeField.getFreeAdjacentLocations(nextLocation(freeField, nextFree)).size();
+            case "generateCounts":
+                return generateCounts(new Simulation(size, size));
+            case "takeFrame":
+                return takeFrame(new Simulation(size, size));
+            case "showStatus":
+                return showStatus(new Simulation(size, size));
+            default:
+                throw new IllegalArgumentException("No workload called " + name);
+        }
+    }
+
+    /**
+     * @return A workload running one step of a simulation.
+     */
+    private static Workload step(Simulation simulation)
+    {
+        return () -> {
+            simulation.simulateOneStep();
+            return simulation.getStep();
+        };
+    }
+
+    /**
+     * @return A workload counting the population of a simulation, as the
+     *         statistics do after every step.
+     */
+    private static Workload generateCounts(Simulation simulation)
+    {
+        FieldStats stats = new FieldStats();
+        Field field = simulation.getField();
+        return () -> {
+            stats.stepCompleted(simulation);
+            return stats.getPopulationDetails(field).length();
+        };
+    }
+
+    /**
+     * @return A workload taking a frame of a simulation, the part of
+     *         showing a step done on the simulation's thread. As the field
+     *         does not change between frames, this is the cost of a frame
+     *         beyond encoding the locations that changed.
+     */
+    private static Workload takeFrame(Simulation simulation)
+    {
+        FramePublisher publisher = new FramePublisher(null);
+        Field field = simulation.getField();
+        return () -> {
+            FieldFrame frame = publisher.takeFrame(simulation.getStep(), "Day", "Clear Day",
+                                                   field, SimulatorView.DAY_COLOR, "On", "0");
+            return frame.getCells().length;
+        };
+    }
+
+    /**
+     * @return A workload showing a simulation in a window. It needs a
+     *         display.
+     */
+    private static Workload showStatus(Simulation simulation)
+    {
+        Field field = simulation.getField();
+        SimulatorView view = new SimulatorView(field.getDepth(), field.getWidth());
+        return new Workload() {
+            public long run()
+            {
+                view.showStatus(simulation.getStep(), "Day", "Clear Day", field, "On", "0");
+                return simulation.getStep();
+            }
+
+            public void close()
+            {
+                SwingUtilities.invokeLater(view::dispose);
+            }
+        };
+    }
+
+    /**
+     * Return the locations of the field one after another, so the
+     * field operations are measured all over the field.
+     * @param field The field.
+     * @param next Holds the index of the next location.
+     * @return The next location.
+     */
+    private static Location nextLocation(Field field, int[] next)
+    {
+        Location location = field.locationAt(next[0]);
+        next[0] = (next[0] + 1) % field.getSize();
+        return location;
+    }
+}
@@ -0,0 +1,88 @@
+import benchmarks.Workload;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Makes the workloads measured by benchmarks.MortalityBenchmark: a
+ * sequential step in which a large part of the population dies, as after
+ * a predator wave or a spell of bad weather, and for comparison removing
+ * the same dead species from a list one at a time with Iterator.remove,
+ * which shifts the rest of the list for every removal.
+ *
+ * Each workload starts from a new simulation of the default seed, run
+ * for a few steps so the population has settled, and then kills the
+ * given fraction of the species. It can only be run once.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class MortalityWorkloads
+{
+    // Steps run before the species are killed.
+    private static final int WARMUP_STEPS = 10;
+
+    /**
+     * Make a workload.
+     * @param name "step" or "iteratorRemoval".
+     * @param size The width and depth of the field.
+     * @param fraction The fraction of the species to kill first.
+     * @return The workload.
+     * @throws IllegalArgumentException if there is no operation of that name.
+     */
+    public static Workload create(String name, int size, double fraction)
+    {
+        Randomizer.reset();
+        Simulation simulation = new Simulation(size, size);
+        for(int step = 0; step < WARMUP_STEPS; step++) {
+            simulation.simulateOneStep();
+        }
+        List<Species> species = kill(simulation.getField(), fraction, new Random(size));
+        switch(name) {
+            case "step":
+                return () -> {
+                    simulation.simulateOneStep();
+                    return simulation.getStep();
+                };
+            case "iteratorRemoval":
+                return () -> {
+                    int removed = 0;
+                    for(Iterator<Species> it = species.iterator(); it.hasNext(); ) {
+                        if(!it.next().isAlive()) {
+                            it.remove();
+                            removed++;
+                        }
+                    }
+                    return removed;
+                };
+            default:
+                throw new IllegalArgumentException("No workload called " + name);
+        }
+    }
+
+    /**
+     * Kill a fraction of the species in a field. The random stream is
+     * our own, so the step afterwards draws the same numbers whatever
+     * the fraction.
+     * @param field The field.
+     * @param fraction The fraction of the species to kill.
+     * @param rand The random stream choosing which.
+     * @return The species of the field before any were killed, in the
+     *         order of their locations.
+     */
+    private static List<Species> kill(Field field, double fraction, Random rand)
+    {
+        List<Species> species = new ArrayList<>();
+        for(int index = 0; index < field.getSize(); index++) {
+            Object object = field.getObjectAt(index);
+            if(object instanceof Species) {
+                species.add((Species) object);
+                if(rand.nextDouble() < fraction) {
+                    ((Species) object).setDead();
+                }
+            }
+        }
+        return species;
+    }
+}
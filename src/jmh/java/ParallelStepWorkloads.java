@@ -0,0 +1,41 @@
+import benchmarks.Workload;
+
+/**
+ * Makes the workloads measured by benchmarks.ParallelStepBenchmark: a
+ * headless step of a simulation of the default seed, with the species
+ * acting one after another or in parallel tiles.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public class ParallelStepWorkloads
+{
+    /**
+     * Make a workload running one step at a time.
+     * @param size The width and depth of the field.
+     * @param tileSize The width and depth of a tile, or 0 for the species
+     *                 to act one after another.
+     * @param threads The number of threads the tiles run on.
+     * @return The workload.
+     */
+    public static Workload create(int size, int tileSize, int threads)
+    {
+        Randomizer.reset();
+        Simulation simulation = new Simulation(size, size);
+        if(tileSize > 0) {
+            simulation.setParallelStep(tileSize, threads);
+        }
+        return new Workload() {
+            public long run()
+            {
+                simulation.simulateOneStep();
+                return simulation.getStep();
+            }
+
+            public void close()
+            {
+                simulation.setSequentialStep();
+            }
+        };
+    }
+}
@@ -0,0 +1,225 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the hot paths of the simulation: a whole headless
+ * step at several field sizes, with Species objects and with an
+ * EntityStore, and once with the weather sampled in bulk, and the field,
+ * statistics and view operations called on every step. Run with the gc
+ * profiler to see the bytes allocated per operation as well:
+ *
+ *     mvn -Pjmh package
+ *     java -jar target/benchmarks.jar -prof gc
+ *
+ * Every iteration starts from a new simulation of the default seed, so
+ * the steps measured are the same from run to run. showStatus opens a
+ * window and fails without a display; the other benchmarks still run,
+ * and takeFrame measures the part of it done off the Swing thread.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark
+{
+    // The field size of the benchmarks other than whole steps.
+    private static final int FIELD_SIZE = 300;
+
+    /**
+     * Holds the workload of a benchmark, made afresh each iteration.
+     */
+    public abstract static class WorkloadState
+    {
+        // The workload measured.
+        protected Workload workload;
+
+        /**
+         * @return The name of the workload (see HotPathWorkloads).
+         */
+        protected abstract String getName();
+
+        /**
+         * @return The width and depth of the field.
+         */
+        protected int getSize()
+        {
+            return FIELD_SIZE;
+        }
+
+        @Setup(Level.Iteration)
+        public void setUp()
+        {
+            workload = Workloads.create("HotPathWorkloads", getName(), getSize());
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown()
+        {
+            workload.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StepState extends WorkloadState
+    {
+        @Param({"100", "300", "1000"})
+        public int size;
+
+        protected String getName()
+        {
+            return "simulateOneStep";
+        }
+
+        protected int getSize()
+        {
+            return size;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BulkStepState extends WorkloadState
+    {
+        @Param({"1000"})
+        public int size;
+
+        protected String getName()
+        {
+            return "simulateOneStepBulk";
+        }
+
+        protected int getSize()
+        {
+            return size;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class EntityStepState extends WorkloadState
+    {
+        @Param({"100", "300", "1000"})
+        public int size;
+
+        protected String getName()
+        {
+            return "entitySimulationStep";
+        }
+
+        protected int getSize()
+        {
+            return size;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AdjacentState extends WorkloadState
+    {
+        protected String getName()
+        {
+            return "adjacentLocations";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FreeAdjacentState extends WorkloadState
+    {
+        protected String getName()
+        {
+            return "getFreeAdjacentLocations";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CountsState extends WorkloadState
+    {
+        protected String getName()
+        {
+            return "generateCounts";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FrameState extends WorkloadState
+    {
+        protected String getName()
+        {
+            return "takeFrame";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StatusState extends WorkloadState
+    {
+        protected String getName()
+        {
+            return "showStatus";
+        }
+    }
+
+    @Benchmark
+    public long simulateOneStep(StepState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public long simulateOneStepBulk(BulkStepState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public long entitySimulationStep(EntityStepState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long adjacentLocations(AdjacentState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long getFreeAdjacentLocations(FreeAdjacentState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public long generateCounts(CountsState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public long takeFrame(FrameState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public long showStatus(StatusState state)
+    {
+        return state.workload.run();
+    }
+}
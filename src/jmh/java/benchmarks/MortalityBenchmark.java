@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of a sequential step in which a large part of the
+ * population has just died, against removing the same dead species from
+ * a list with Iterator.remove. stepAfterDeaths with a fraction of 0 is
+ * the step with no extra deaths.
+ *
+ *     mvn -Pjmh package
+ *     java -jar target/benchmarks.jar MortalityBenchmark
+ *
+ * Killing the species uses up the state, so every operation gets a new
+ * simulation of the default seed and is timed once.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class MortalityBenchmark
+{
+    /**
+     * A settled simulation in which the given fraction of the species
+     * has just been killed.
+     */
+    @State(Scope.Thread)
+    public abstract static class HeavyMortalityState
+    {
+        @Param({"300"})
+        public int size;
+
+        @Param({"0", "0.5", "0.9"})
+        public double fraction;
+
+        // The workload measured.
+        protected Workload workload;
+
+        /**
+         * @return The name of the workload (see MortalityWorkloads).
+         */
+        protected abstract String getName();
+
+        @Setup(Level.Iteration)
+        public void setUp()
+        {
+            workload = Workloads.create("MortalityWorkloads", getName(), size, fraction);
+        }
+    }
+
+    public static class StepState extends HeavyMortalityState
+    {
+        protected String getName()
+        {
+            return "step";
+        }
+    }
+
+    public static class RemovalState extends HeavyMortalityState
+    {
+        protected String getName()
+        {
+            return "iteratorRemoval";
+        }
+    }
+
+    @Benchmark
+    public long stepAfterDeaths(StepState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public long iteratorRemoval(RemovalState state)
+    {
+        return state.workload.run();
+    }
+}
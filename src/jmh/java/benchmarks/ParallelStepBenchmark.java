@@ -0,0 +1,101 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of a headless step with the species acting one after
+ * another and in parallel checkerboard tiles (see TiledStep), at several
+ * field sizes, tile sizes and thread counts. The speedup of the tiles is
+ * sequentialStep over tiledStep at the same size; tiledStep on one thread
+ * shows what the tiling itself costs.
+ *
+ *     mvn -Pjmh package
+ *     java -jar target/benchmarks.jar ParallelStepBenchmark -p threads=1,4
+ *
+ * Every iteration starts from a new simulation of the default seed.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelStepBenchmark
+{
+    @State(Scope.Thread)
+    public static class SequentialState
+    {
+        @Param({"300", "1000"})
+        public int size;
+
+        // The workload measured.
+        Workload workload;
+
+        @Setup(Level.Iteration)
+        public void setUp()
+        {
+            workload = Workloads.create("ParallelStepWorkloads", size, 0, 1);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown()
+        {
+            workload.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TiledState
+    {
+        @Param({"300", "1000"})
+        public int size;
+
+        @Param({"32", "64"})
+        public int tileSize;
+
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+
+        // The workload measured.
+        Workload workload;
+
+        @Setup(Level.Iteration)
+        public void setUp()
+        {
+            workload = Workloads.create("ParallelStepWorkloads", size, tileSize, threads);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown()
+        {
+            workload.close();
+        }
+    }
+
+    @Benchmark
+    public long sequentialStep(SequentialState state)
+    {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public long tiledStep(TiledState state)
+    {
+        return state.workload.run();
+    }
+}
@@ -0,0 +1,27 @@
+package benchmarks;
+
+/**
+ * One operation of the simulation for a benchmark to repeat, made by
+ * HotPathWorkloads. The simulation's classes are in the default package,
+ * which JMH benchmarks cannot be in and cannot import from, so the
+ * benchmarks only see them through this interface.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+public interface Workload
+{
+    /**
+     * Carry out the operation once.
+     * @return A result of the operation, for the benchmark to consume so
+     *         the work is not optimised away.
+     */
+    long run();
+
+    /**
+     * Release anything the workload holds, such as a window.
+     */
+    default void close()
+    {
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Makes workloads through the factories in the default package, such as
+ * HotPathWorkloads. Being in the default package with the simulation,
+ * they can only be reached by reflection from here.
+ *
+ * @author Reuben Atendido and Oliver Macpherson
+ * @version 1
+ */
+class Workloads
+{
+    /**
+     * Make a workload by calling the static create method of a factory
+     * taking the given number of arguments.
+     * @param factory The name of the factory class.
+     * @param args The arguments of its create method.
+     * @return The workload.
+     */
+    static Workload create(String factory, Object... args)
+    {
+        try {
+            for(Method method : Class.forName(factory).getMethods()) {
+                if(method.getName().equals("create") && method.getParameterCount() == args.length) {
+                    return (Workload) method.invoke(null, args);
+                }
+            }
+            throw new IllegalStateException(factory + " has no create method taking "
+                                            + args.length + " arguments");
+        }
+        catch(InvocationTargetException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        catch(ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot make a workload of " + factory, e);
+        }
+    }
+}